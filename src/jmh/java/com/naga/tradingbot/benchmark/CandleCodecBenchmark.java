@@ -0,0 +1,91 @@
+package com.naga.tradingbot.benchmark;
+
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.utils.CandleCodec;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a year of hourly candles block by block, against copying the same year of
+ * raw {@link CandleView#RECORD_SIZE} byte records. The setup logs the compression ratio.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CandleCodecBenchmark {
+
+  private static final Logger logger = Logger.getLogger(CandleCodecBenchmark.class);
+
+  @Param({"1024"})
+  private int blockSize;
+
+  private CandleView year;
+
+  private byte[][] blocks;
+
+  private ByteBuffer raw;
+
+  private ByteBuffer records;
+
+  @Setup
+  public void setUp() {
+    year = CandleFixtures.yearView();
+    blocks = encodeYear();
+    long encoded = 0;
+    for (byte[] block : blocks) {
+      encoded += block.length;
+    }
+    long rawSize = (long) year.size() * CandleView.RECORD_SIZE;
+    logger.info(String.format("%d candles: %d raw bytes, %d encoded bytes, ratio %.2f", year.size(), rawSize,
+        encoded, (double) rawSize / encoded));
+    raw = ByteBuffer.allocate((int) rawSize).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < year.size(); i++) {
+      CandleView.put(raw, year.getOpenTime(i), year.getCloseTime(i), year.getOpen(i), year.getHigh(i),
+          year.getLow(i), year.getClose(i), year.getVolume(i));
+    }
+    records = ByteBuffer.allocate((int) rawSize).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Benchmark
+  public byte[][] encodeYear() {
+    byte[][] encoded = new byte[(year.size() + blockSize - 1) / blockSize][];
+    for (int block = 0; block < encoded.length; block++) {
+      int from = block * blockSize;
+      encoded[block] = CandleCodec.encode(year, from, Math.min(from + blockSize, year.size()));
+    }
+    return encoded;
+  }
+
+  @Benchmark
+  public ByteBuffer decodeYear() {
+    records.clear();
+    for (byte[] block : blocks) {
+      CandleCodec.decode(block, 0, records);
+    }
+    return records;
+  }
+
+  @Benchmark
+  public ByteBuffer copyRawYear() {
+    records.clear();
+    raw.clear();
+    return records.put(raw);
+  }
+}
@@ -0,0 +1,90 @@
+package com.naga.tradingbot.benchmark;
+
+import com.binance.api.client.domain.market.Candlestick;
+import com.naga.tradingbot.model.data.CandleView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Reproducible hourly candles for benchmarks: a seeded random walk ending at a fixed time.
+ */
+public final class CandleFixtures {
+
+  public static final long HOUR_MILLIS = 60 * 60 * 1000L;
+
+  /** Close time of the last generated candle, 2021-01-01T00:00:00Z minus one millisecond. */
+  public static final long END_TIME = 1609459200000L - 1;
+
+  private CandleFixtures() {
+  }
+
+  /** A year of hourly candles, the history the bot keeps per symbol. */
+  public static List<Candlestick> year() {
+    return hourly(365 * 24, 42);
+  }
+
+  /** {@link #year()} as the records the candle store serves. */
+  public static CandleView yearView() {
+    return CandleView.of("BTCUSDT", year());
+  }
+
+  public static List<Candlestick> hourly(int count, long seed) {
+    Random random = new Random(seed);
+    List<Candlestick> candlesticks = new ArrayList<>(count);
+    double close = 100;
+    long openTime = END_TIME + 1 - count * HOUR_MILLIS;
+    for (int i = 0; i < count; i++) {
+      double open = close;
+      close = Math.max(0.01, open * (1 + random.nextGaussian() * 0.01));
+      double high = Math.max(open, close) * (1 + random.nextDouble() * 0.005);
+      double low = Math.min(open, close) * (1 - random.nextDouble() * 0.005);
+      double volume = 1000 + random.nextDouble() * 5000;
+      Candlestick candlestick = new Candlestick();
+      candlestick.setOpenTime(openTime);
+      candlestick.setOpen(format(open));
+      candlestick.setHigh(format(high));
+      candlestick.setLow(format(low));
+      candlestick.setClose(format(close));
+      candlestick.setVolume(format(volume));
+      candlestick.setCloseTime(openTime + HOUR_MILLIS - 1);
+      candlestick.setQuoteAssetVolume(format(volume * close));
+      candlestick.setNumberOfTrades(100L + random.nextInt(1000));
+      candlestick.setTakerBuyBaseAssetVolume(format(volume / 2));
+      candlestick.setTakerBuyQuoteAssetVolume(format(volume * close / 2));
+      candlesticks.add(candlestick);
+      openTime += HOUR_MILLIS;
+    }
+    return candlesticks;
+  }
+
+  /** The candles as the klines REST endpoint returns them. */
+  public static String klinesJson(List<Candlestick> candlesticks) {
+    StringBuilder json = new StringBuilder(candlesticks.size() * 160).append('[');
+    for (int i = 0; i < candlesticks.size(); i++) {
+      Candlestick candlestick = candlesticks.get(i);
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append('[').append(candlestick.getOpenTime())
+          .append(",\"").append(candlestick.getOpen())
+          .append("\",\"").append(candlestick.getHigh())
+          .append("\",\"").append(candlestick.getLow())
+          .append("\",\"").append(candlestick.getClose())
+          .append("\",\"").append(candlestick.getVolume())
+          .append("\",").append(candlestick.getCloseTime())
+          .append(",\"").append(candlestick.getQuoteAssetVolume())
+          .append("\",").append(candlestick.getNumberOfTrades())
+          .append(",\"").append(candlestick.getTakerBuyBaseAssetVolume())
+          .append("\",\"").append(candlestick.getTakerBuyQuoteAssetVolume())
+          .append("\",\"0\"]");
+    }
+    return json.append(']').toString();
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.8f", value);
+  }
+}
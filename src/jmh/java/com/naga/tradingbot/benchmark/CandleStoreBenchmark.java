@@ -0,0 +1,74 @@
+package com.naga.tradingbot.benchmark;
+
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.service.CandleStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a stored year of hourly candles and scanning its closes, as every scan of a symbol does,
+ * from the CSV store, the memory-mapped archive and the compressed archive. Run with {@code -prof gc}
+ * to compare allocation per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CandleStoreBenchmark {
+
+  @Param({"csv", "mapped", "compressed"})
+  private String format;
+
+  private Path dir;
+
+  private CandleStore candleStore;
+
+  @Setup
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("candles");
+    candleStore = new CandleStore();
+    ReflectionTestUtils.setField(candleStore, "storeDir", dir.toString());
+    ReflectionTestUtils.setField(candleStore, "format", format);
+    candleStore.append("BTCUSDT", CandlestickInterval.HOURLY, CandleFixtures.year());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(dir);
+  }
+
+  @Benchmark
+  public double readYear() {
+    CandleView candles = candleStore.view("BTCUSDT", CandlestickInterval.HOURLY, 0);
+    double sum = 0;
+    for (int i = 0; i < candles.size(); i++) {
+      sum += candles.getClose(i);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long lastCloseTime() {
+    return candleStore.getLastCloseTime("BTCUSDT", CandlestickInterval.HOURLY);
+  }
+}
@@ -0,0 +1,56 @@
+package com.naga.tradingbot.benchmark;
+
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.service.MovingAverageChartHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds and encodes the Telegram chart of a year of hourly candles with and without downsampling.
+ * maxPoints=0 plots every candle. Run with {@code -prof gc} to compare allocation per chart.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ChartRenderBenchmark {
+
+  @Param({"0", "1000"})
+  private int maxPoints;
+
+  private MovingAverageChartHelper chartHelper;
+
+  private CandleView candles;
+
+  @Setup
+  public void setUp() {
+    chartHelper = new MovingAverageChartHelper();
+    ReflectionTestUtils.setField(chartHelper, "shortTermMA", 50);
+    ReflectionTestUtils.setField(chartHelper, "longTermMA", 200);
+    ReflectionTestUtils.setField(chartHelper, "maStrategy", "SMA");
+    ReflectionTestUtils.setField(chartHelper, "chartWidth", 1000);
+    ReflectionTestUtils.setField(chartHelper, "chartHeight", 700);
+    ReflectionTestUtils.setField(chartHelper, "chartMaxPoints", maxPoints);
+    candles = CandleFixtures.yearView();
+  }
+
+  @Benchmark
+  public byte[] renderChart() throws IOException {
+    return chartHelper.encodeChart(chartHelper.getChart("BTCUSDT", candles));
+  }
+}
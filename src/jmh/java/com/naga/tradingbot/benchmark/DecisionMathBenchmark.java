@@ -0,0 +1,99 @@
+package com.naga.tradingbot.benchmark;
+
+import com.naga.tradingbot.model.data.PredictionEngine;
+import com.naga.tradingbot.model.data.SymbolMetadata;
+import com.naga.tradingbot.utils.CalcUtils;
+import com.naga.tradingbot.utils.FixedDecimal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-decision arithmetic of BotEngine: rounding the averages, classifying the signal and the
+ * price/quantity precision math of an order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecisionMathBenchmark {
+
+  private double shortSMA;
+  private double longSMA;
+  private double price;
+  private double allocateUsdt;
+  private int pricePrecision;
+  private SymbolMetadata rules;
+
+  @Setup
+  public void setUp() {
+    shortSMA = 31234.567891234;
+    longSMA = 29876.123456789;
+    price = 31801.23456789;
+    allocateUsdt = 250.1234;
+    pricePrecision = 2;
+    rules = new SymbolMetadata("BTCUSDT", "BTC", "USDT", "0.01000000", "0.01000000", "0.00001000",
+        "0.00001000", "10.00000000");
+  }
+
+  /** predictTrendAndDecide: BigDecimal rounding of the three values. */
+  @Benchmark
+  public double roundWithBigDecimal() {
+    return new BigDecimal(shortSMA).setScale(8, RoundingMode.HALF_UP).doubleValue()
+        + new BigDecimal(longSMA).setScale(8, RoundingMode.HALF_UP).doubleValue()
+        + new BigDecimal(price).setScale(8, RoundingMode.HALF_UP).doubleValue();
+  }
+
+  @Benchmark
+  public double roundWithCalcUtils() {
+    return CalcUtils.roundTo(shortSMA, 8) + CalcUtils.roundTo(longSMA, 8) + CalcUtils.roundTo(price, 8);
+  }
+
+  @Benchmark
+  public String classifySignal() {
+    return PredictionEngine.classifySignal(shortSMA, longSMA, price, PredictionEngine.sellPriceMultiplier);
+  }
+
+  /** performBuyBack: quantity from the allocation with the integer-digit precision guess. */
+  @Benchmark
+  public double orderQuantity() {
+    double buyPrice = CalcUtils.roundTo(price * PredictionEngine.buyBackAfterThisPercentage, 8);
+    return CalcUtils.floorTo(CalcUtils.floorTo(allocateUsdt, 2) / buyPrice,
+        String.valueOf((int) buyPrice).length() - 1);
+  }
+
+  /** performBuyBack: price floored to the tick precision and formatted for the order. */
+  @Benchmark
+  public String orderPriceFormatted() {
+    DecimalFormat df = new DecimalFormat("#.#");
+    df.setMaximumFractionDigits(pricePrecision);
+    return df.format(CalcUtils.floorTo(price, pricePrecision));
+  }
+
+  /** performBuyBack: quantity floored to the LOT_SIZE step in fixed point. */
+  @Benchmark
+  public long orderQuantityFixed() {
+    long buyPrice = rules.floorPrice(FixedDecimal.fromDouble(price * PredictionEngine.buyBackAfterThisPercentage));
+    return rules.floorQuantity(FixedDecimal.fromDouble(CalcUtils.floorTo(allocateUsdt, 2) / FixedDecimal.toDouble(buyPrice)));
+  }
+
+  /** performBuyBack: price floored to the tick size and formatted in fixed point. */
+  @Benchmark
+  public String orderPriceFixedFormatted() {
+    return rules.formatPrice(rules.floorPrice(FixedDecimal.fromDouble(price)));
+  }
+}
@@ -0,0 +1,77 @@
+package com.naga.tradingbot.benchmark;
+
+import com.binance.api.client.domain.market.Candlestick;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.naga.tradingbot.model.data.CandleSeries;
+import com.naga.tradingbot.utils.DecimalParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding one page of 1000 klines as the REST client does, turning a year of candles into
+ * columns, and parsing a year of close prices with Double.parseDouble and with DecimalParser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KlineParsingBenchmark {
+
+  private static final TypeReference<List<Candlestick>> CANDLESTICK_LIST = new TypeReference<List<Candlestick>>() {
+  };
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private String klinePage;
+
+  private List<Candlestick> year;
+
+  @Setup
+  public void setUp() {
+    klinePage = CandleFixtures.klinesJson(CandleFixtures.hourly(1000, 7));
+    year = CandleFixtures.year();
+  }
+
+  @Benchmark
+  public List<Candlestick> parseKlinePage() throws IOException {
+    return objectMapper.readValue(klinePage, CANDLESTICK_LIST);
+  }
+
+  @Benchmark
+  public CandleSeries toCandleSeries() {
+    return CandleSeries.of("BTCUSDT", year);
+  }
+
+  @Benchmark
+  public double parseClosesDouble() {
+    double sum = 0;
+    for (Candlestick candlestick : year) {
+      sum += Double.parseDouble(candlestick.getClose());
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double parseClosesDecimalParser() {
+    double sum = 0;
+    for (Candlestick candlestick : year) {
+      sum += DecimalParser.parseDouble(candlestick.getClose());
+    }
+    return sum;
+  }
+}
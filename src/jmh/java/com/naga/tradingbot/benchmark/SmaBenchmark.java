@@ -0,0 +1,64 @@
+package com.naga.tradingbot.benchmark;
+
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.model.data.IndicatorState;
+import com.naga.tradingbot.service.MovingAverageEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The 50/200 day SMAs of a year of hourly candles: built from scratch, as after a restart, and
+ * re-evaluated on a state that already holds every closed candle, as on a cycle without a new close.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SmaBenchmark {
+
+  private CandleView year;
+
+  private MovingAverageEngine warmEngine;
+
+  @Setup
+  public void setUp() {
+    year = CandleFixtures.yearView();
+  }
+
+  @Setup(Level.Iteration)
+  public void warmUp() {
+    warmEngine = newEngine();
+    warmEngine.update("BTCUSDT", year);
+  }
+
+  @Benchmark
+  public IndicatorState fullHistory() {
+    return newEngine().update("BTCUSDT", year);
+  }
+
+  @Benchmark
+  public IndicatorState upToDate() {
+    return warmEngine.update("BTCUSDT", year);
+  }
+
+  private static MovingAverageEngine newEngine() {
+    MovingAverageEngine engine = new MovingAverageEngine();
+    ReflectionTestUtils.setField(engine, "shortTermMA", 50);
+    ReflectionTestUtils.setField(engine, "longTermMA", 200);
+    return engine;
+  }
+}
@@ -0,0 +1,43 @@
+package com.naga.tradingbot.benchmark;
+
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.service.MovingAverageChartHelper;
+import org.jfree.data.time.TimeSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the JFreeChart price series of a year of hourly candles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeSeriesBenchmark {
+
+  private final MovingAverageChartHelper chartHelper = new MovingAverageChartHelper();
+
+  private CandleView candles;
+
+  @Setup
+  public void setUp() {
+    candles = CandleFixtures.yearView();
+  }
+
+  @Benchmark
+  public TimeSeries createTimeSeries() {
+    return chartHelper.createTimeSeries("BTCUSDT", candles);
+  }
+}
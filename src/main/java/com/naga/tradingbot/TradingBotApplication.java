@@ -1,9 +1,15 @@
 package com.naga.tradingbot;
 
+import com.naga.tradingbot.service.BackfillService;
+import com.naga.tradingbot.service.BacktestService;
 import com.naga.tradingbot.service.BotEngine;
 import com.naga.tradingbot.service.BotExecuteEachCoinJob;
 import com.naga.tradingbot.service.BotExecuteJob;
+import com.naga.tradingbot.service.JobScheduler;
+import com.naga.tradingbot.service.KlineStreamService;
+import com.naga.tradingbot.service.WarmStartSnapshot;
 import com.naga.tradingbot.utils.LoggerUtil;
+import com.naga.tradingbot.utils.TelegramNotifier;
 import org.apache.log4j.Logger;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -11,7 +17,9 @@ import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.env.Environment;
 import org.springframework.util.StringUtils;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 @SpringBootApplication
 public class TradingBotApplication {
@@ -28,6 +36,30 @@ public class TradingBotApplication {
         String binanceApiKey = env.getProperty("trading.bot.binance.api.key");
         String binanceSecretKey = env.getProperty("trading.bot.binance.secret.key");
 
+        String mode = env.getProperty("trading.bot.mode", "poll");
+        if ("backtest".equalsIgnoreCase(mode) || "sweep".equalsIgnoreCase(mode)) {
+            // Offline: credentials are optional and only used to read the exchange rules
+            if (!StringUtils.isEmpty(binanceApiKey) && !StringUtils.isEmpty(binanceSecretKey)) {
+                dolores.setBinanceCreds(binanceApiKey, binanceSecretKey);
+            }
+            BacktestService backtestService = context.getBean(BacktestService.class);
+            if ("sweep".equalsIgnoreCase(mode)) {
+                backtestService.sweep();
+            } else {
+                backtestService.run();
+            }
+            System.exit(SpringApplication.exit(context));
+        }
+        if ("backfill".equalsIgnoreCase(mode)) {
+            // Klines and exchangeInfo are public, so credentials are optional here too
+            dolores.setBinanceCreds(binanceApiKey, binanceSecretKey);
+            try {
+                context.getBean(BackfillService.class).run();
+            } catch (InterruptedException e) {
+                logger.error("Backfill interrupted", e);
+            }
+            System.exit(SpringApplication.exit(context));
+        }
         if (StringUtils.isEmpty(binanceApiKey) || StringUtils.isEmpty(binanceSecretKey)) {
             logger.error("Binance Credentials not set in application.properties!");
             System.exit(-1);
@@ -35,18 +67,44 @@ public class TradingBotApplication {
             dolores.setBinanceCreds(binanceApiKey, binanceSecretKey);
             logger.info("Bot started");
         }
+        // Metadata, indicator state and evaluations of the previous run; candles come from the candle store
+        context.getBean(WarmStartSnapshot.class).load();
+        if ("stream".equalsIgnoreCase(mode)) {
+            runStreaming(context, env, loggerUtil, botExecuteJob);
+            return;
+        }
         try {
-            for (; ; ) {
-                loggerUtil.notify("BTCUSDT", "Run started @ " + new Date() + " on "
-                        + env.getProperty("spring.profiles.active", String.class));
-                botExecuteJob.execute(null);
-                System.gc();
-                Thread.sleep(1 * 30 * 60 * 1000l);
-
-            }
+            // Quartz fires the scans from here on; its worker threads keep the application running
+            context.getBean(JobScheduler.class).start();
+            loggerUtil.notify("BTCUSDT", "Scheduler started @ " + new Date() + " on "
+                    + env.getProperty("spring.profiles.active", String.class), TelegramNotifier.Priority.LOW);
         } catch (Exception e) {
-            loggerUtil.notify("BTCUSDT", "FATAL.... Main Thread stopped. Bot not running.");
+            logger.error("Unable to schedule the trading jobs", e);
+            loggerUtil.notify("BTCUSDT", "FATAL.... Scheduler not started. Bot not running.",
+                    TelegramNotifier.Priority.HIGH);
         }
         //botExecuteEachCoinJob.runBot("ONEUSDT");
     }
+
+    /**
+     * Runs the event driven mode: every closed hourly candle re-evaluates its own symbol.
+     */
+    private static void runStreaming(ConfigurableApplicationContext context, Environment env, LoggerUtil loggerUtil,
+                                     BotExecuteJob botExecuteJob) {
+        KlineStreamService klineStreamService = context.getBean(KlineStreamService.class);
+        String symbols = env.getProperty("trading.bot.stream.symbols");
+        // Streams cover every symbol; the shard assignment is checked per closed candle
+        List<String> tickers = StringUtils.isEmpty(symbols) ? botExecuteJob.getAllTickers()
+                : Arrays.asList(StringUtils.commaDelimitedListToStringArray(symbols.replace(" ", "")));
+        try {
+            loggerUtil.notify("BTCUSDT", "Streaming started @ " + new Date() + " on "
+                    + env.getProperty("spring.profiles.active", String.class), TelegramNotifier.Priority.LOW);
+            klineStreamService.start(tickers);
+            context.getBean(WarmStartSnapshot.class).startPeriodicSave();
+            klineStreamService.await();
+        } catch (Exception e) {
+            loggerUtil.notify("BTCUSDT", "FATAL.... Kline streaming stopped. Bot not running.",
+                    TelegramNotifier.Priority.HIGH);
+        }
+    }
 }
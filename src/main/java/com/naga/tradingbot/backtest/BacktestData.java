@@ -0,0 +1,105 @@
+package com.naga.tradingbot.backtest;
+
+import com.naga.tradingbot.model.data.CandleSeries;
+import com.naga.tradingbot.model.data.SymbolMetadata;
+
+import java.util.List;
+
+/**
+ * Read-only market data of a backtest: the candle columns of every symbol, prefix sums of their
+ * closes for O(1) moving averages and the position of every candle on a shared hourly grid. Built
+ * once and shared by any number of runs.
+ */
+public class BacktestData {
+
+    public static final long HOUR_MILLIS = 60 * 60 * 1000L;
+
+    private final CandleSeries[] series;
+    private final SymbolMetadata[] rules;
+    private final double[][] closePrefixSums;
+    private final int[][] hours;
+    private final int hourCount;
+    private final int fallbackRuleCount;
+
+    /**
+     * @param fallbackRuleCount symbols whose rules are placeholders because exchangeInfo was not
+     *                          available, reported with every result
+     */
+    public BacktestData(List<CandleSeries> series, List<SymbolMetadata> rules, int fallbackRuleCount) {
+        if (series.size() != rules.size()) {
+            throw new IllegalArgumentException("Every symbol needs its trading rules");
+        }
+        this.series = series.toArray(new CandleSeries[0]);
+        this.rules = rules.toArray(new SymbolMetadata[0]);
+        this.closePrefixSums = new double[this.series.length][];
+        this.hours = new int[this.series.length][];
+        long start = Long.MAX_VALUE;
+        for (CandleSeries candleSeries : this.series) {
+            if (candleSeries.size() > 0) {
+                start = Math.min(start, candleSeries.getOpenTimes()[0]);
+            }
+        }
+        int lastHour = -1;
+        for (int s = 0; s < this.series.length; s++) {
+            double[] closes = this.series[s].getCloses();
+            long[] openTimes = this.series[s].getOpenTimes();
+            int size = this.series[s].size();
+            double[] prefix = new double[size + 1];
+            int[] hour = new int[size];
+            for (int i = 0; i < size; i++) {
+                prefix[i + 1] = prefix[i] + closes[i];
+                hour[i] = (int) ((openTimes[i] - start) / HOUR_MILLIS);
+                lastHour = Math.max(lastHour, hour[i]);
+            }
+            closePrefixSums[s] = prefix;
+            hours[s] = hour;
+        }
+        this.hourCount = lastHour + 1;
+        this.fallbackRuleCount = fallbackRuleCount;
+    }
+
+    public int getSymbolCount() {
+        return series.length;
+    }
+
+    public CandleSeries getSeries(int symbol) {
+        return series[symbol];
+    }
+
+    public SymbolMetadata[] getRules() {
+        return rules;
+    }
+
+    public int getFallbackRuleCount() {
+        return fallbackRuleCount;
+    }
+
+    /**
+     * Hour of each candle of the symbol, counted from the first candle of all symbols.
+     */
+    public int[] getHours(int symbol) {
+        return hours[symbol];
+    }
+
+    public int getHourCount() {
+        return hourCount;
+    }
+
+    public int getCandleCount() {
+        int count = 0;
+        for (CandleSeries candleSeries : series) {
+            count += candleSeries.size();
+        }
+        return count;
+    }
+
+    /**
+     * Average close of the up to {@code period} candles ending at index {@code end}, inclusive.
+     * Like the live engine, fewer candles are averaged at the start of the history.
+     */
+    public double average(int symbol, int end, int period) {
+        double[] prefix = closePrefixSums[symbol];
+        int from = Math.max(0, end + 1 - period);
+        return (prefix[end + 1] - prefix[from]) / (end + 1 - from);
+    }
+}
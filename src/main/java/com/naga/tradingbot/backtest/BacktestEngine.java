@@ -0,0 +1,188 @@
+package com.naga.tradingbot.backtest;
+
+import com.naga.tradingbot.model.data.CandleSeries;
+import com.naga.tradingbot.model.data.PredictionEngine;
+import com.naga.tradingbot.model.data.SymbolMetadata;
+import com.naga.tradingbot.utils.CalcUtils;
+import com.naga.tradingbot.utils.FixedDecimal;
+
+/**
+ * Replays stored hourly candles of many symbols through the live trading rules of
+ * {@code BotEngine.tradeBasedOnSignal}: the shared SMA signal classification, the sell multiplier
+ * and buy back price, the market buy back after 10% or 5 days and the stop loss. Every closed candle
+ * is treated like a scan of that symbol. All symbols trade from one simulated account, hour by hour,
+ * so allocations are a percentage of the whole account as in the live bot.
+ * <p>
+ * The replay only reads primitive arrays of {@link BacktestData}; nothing is allocated per candle.
+ */
+public class BacktestEngine {
+
+    private final BacktestData data;
+
+    public BacktestEngine(BacktestData data) {
+        this.data = data;
+    }
+
+    public BacktestResult run(StrategyParameters parameters) {
+        long start = System.currentTimeMillis();
+        Replay replay = new Replay(parameters);
+        int symbolCount = data.getSymbolCount();
+        int[] cursors = new int[symbolCount];
+        double peak = parameters.getInitialBalance();
+        double maxDrawdown = 0;
+        for (int hour = 0; hour < data.getHourCount(); hour++) {
+            for (int s = 0; s < symbolCount; s++) {
+                int i = cursors[s];
+                int[] hours = data.getHours(s);
+                // Several candles can fall into one hour; none may hold the cursor back
+                while (i < hours.length && hours[i] <= hour) {
+                    replay.step(s, i);
+                    i++;
+                }
+                cursors[s] = i;
+            }
+            double value = replay.exchange.getTotalValue();
+            peak = Math.max(peak, value);
+            maxDrawdown = Math.max(maxDrawdown, (peak - value) / peak);
+        }
+
+        String[] symbols = new String[symbolCount];
+        double[] pnl = new double[symbolCount];
+        int[] trades = new int[symbolCount];
+        int[] rejections = new int[symbolCount];
+        for (int s = 0; s < symbolCount; s++) {
+            CandleSeries series = data.getSeries(s);
+            symbols[s] = series.getSymbol();
+            double lastClose = series.size() == 0 ? 0 : series.getCloses()[series.size() - 1];
+            pnl[s] = replay.exchange.getRealizedUsdt(s) + replay.exchange.getTotalCoin(s) * lastClose;
+            trades[s] = replay.exchange.getFills(s);
+            rejections[s] = replay.exchange.getRejections(s);
+        }
+        return new BacktestResult(parameters, parameters.getInitialBalance(), replay.exchange.getTotalValue(),
+                maxDrawdown, symbols, pnl, trades, rejections, data.getCandleCount(), data.getFallbackRuleCount(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Mutable state of a single run.
+     */
+    private class Replay {
+        private final StrategyParameters parameters;
+        private final SimulatedExchange exchange;
+        private final SymbolMetadata[] rules;
+
+        // Buy back to evaluate once the pending limit sell fills, like the order tracker callback
+        private final boolean[] buyBackPending;
+        private final double[] pendingBuyPrice;
+        private final boolean[] pendingStopLoss;
+        private final String[] pendingSignal;
+
+        private Replay(StrategyParameters parameters) {
+            int symbolCount = data.getSymbolCount();
+            this.parameters = parameters;
+            this.rules = data.getRules();
+            this.exchange = new SimulatedExchange(rules, parameters.getInitialBalance(), parameters.getFeeRate());
+            this.buyBackPending = new boolean[symbolCount];
+            this.pendingBuyPrice = new double[symbolCount];
+            this.pendingStopLoss = new boolean[symbolCount];
+            this.pendingSignal = new String[symbolCount];
+        }
+
+        private void step(int s, int i) {
+            CandleSeries series = data.getSeries(s);
+            double close = series.getCloses()[i];
+            long time = series.getCloseTimes()[i];
+            exchange.markPrice(s, close);
+            int filled = exchange.match(s, series.getHighs()[i], series.getLows()[i]);
+            if ((filled & SimulatedExchange.SELL_FILLED) != 0 && buyBackPending[s]) {
+                buyBackPending[s] = false;
+                buyBack(s, pendingSignal[s], pendingBuyPrice[s], pendingStopLoss[s], time);
+            }
+            if (i < parameters.getWarmUp()) {
+                return;
+            }
+            double shortSMA = CalcUtils.roundTo(data.average(s, i, parameters.getShortPeriod()), 8);
+            double longSMA = CalcUtils.roundTo(data.average(s, i, parameters.getLongPeriod()), 8);
+            String signal = PredictionEngine.classifySignal(shortSMA, longSMA, close, parameters.getSellPriceMultiplier());
+            if (PredictionEngine.SIGNAL_DONOTHING.equals(signal)) {
+                return;
+            }
+            double lastTargetPrice = CalcUtils.floorTo(shortSMA * parameters.getSellPriceMultiplier(), 8);
+            if (close > lastTargetPrice) {
+                lastTargetPrice = close;
+            }
+            double buyBackPrice = CalcUtils.roundTo(close * parameters.getBuyBackPercentage(), 8);
+            boolean marketBought = false;
+            if (exchange.hasOpenOrder(s)) {
+                double marginPercent = CalcUtils.roundTo((close / exchange.getOldestOpenOrderPrice(s) - 1) * 100, 2);
+                if ((marginPercent > parameters.getMarketBuyMarginPercent()
+                        || time - exchange.getOldestOpenOrderTime(s) > parameters.getMarketBuyAfterMillis())
+                        && PredictionEngine.SIGNAL_GOOD_BUY.equals(signal)) {
+                    marketBought = marketBuyBack(s, close);
+                }
+            }
+            if (!marketBought) {
+                sellAndBuyBack(s, signal, close, buyBackPrice, lastTargetPrice, time);
+            }
+        }
+
+        private boolean marketBuyBack(int s, double price) {
+            exchange.cancelAll(s);
+            buyBackPending[s] = false;
+            double allocate = exchange.getTotalValue() * parameters.getAllocatePercent() / 100;
+            if (exchange.getTotalCoin(s) > 0.0 && exchange.getFreeUsdt() < allocate) {
+                return false;
+            }
+            double qty = FixedDecimal.toDouble(rules[s].floorQuantity(FixedDecimal.fromDouble(allocate / price)));
+            return exchange.marketBuy(s, qty, price);
+        }
+
+        private void sellAndBuyBack(int s, String signal, double sellPrice, double buyPrice, double lastTargetPrice,
+                                    long time) {
+            double free = exchange.getFreeCoin(s);
+            double freeFloored = FixedDecimal.toDouble(rules[s].floorQuantity(FixedDecimal.fromDouble(free)));
+            boolean sellIt = false;
+            boolean stopLoss = false;
+            if (free > 0.0) {
+                if (exchange.hasTraded(s) && exchange.isLastTradeBuy(s)) {
+                    stopLoss = sellPrice / lastTargetPrice < parameters.getStopLossRatio()
+                            || PredictionEngine.SIGNAL_SELL.equals(signal);
+                    sellIt = sellPrice >= exchange.getLastTradePrice(s) * parameters.getSellPriceMultiplier() || stopLoss;
+                } else {
+                    // Coins without a buy on record are sold, as live does for transferred coins
+                    sellIt = true;
+                }
+            }
+            if (freeFloored > 0.0001 && sellIt) {
+                double price = FixedDecimal.toDouble(rules[s].roundPrice(FixedDecimal.fromDouble(sellPrice)));
+                if (exchange.placeLimitSell(s, freeFloored, price, time)) {
+                    buyBackPending[s] = true;
+                    pendingSignal[s] = signal;
+                    pendingBuyPrice[s] = buyPrice;
+                    pendingStopLoss[s] = stopLoss;
+                    return;
+                }
+            }
+            buyBack(s, signal, buyPrice, stopLoss, time);
+        }
+
+        private void buyBack(int s, String signal, double buyPrice, boolean stopLoss, long time) {
+            if (PredictionEngine.SIGNAL_SELL.equals(signal) || PredictionEngine.SIGNAL_RISK_BUY.equals(signal) || stopLoss) {
+                return;
+            }
+            SymbolMetadata rule = rules[s];
+            double allocate = exchange.getTotalValue() * parameters.getAllocatePercent() / 100;
+            if (exchange.getTotalCoin(s) > rule.getMinQty() || exchange.getFreeUsdt() < allocate) {
+                return;
+            }
+            double allocateFloored = CalcUtils.floorTo(allocate, 2);
+            double price = FixedDecimal.toDouble(rule.floorPrice(FixedDecimal.fromDouble(buyPrice)));
+            double qty = price <= 0 ? 0 : FixedDecimal.toDouble(rule.floorQuantity(FixedDecimal.fromDouble(allocateFloored / price)));
+            if (qty <= 0 || qty * price < rule.getMinNotional() || price < rule.getMinPrice()) {
+                return;
+            }
+            exchange.cancelBuy(s);
+            exchange.placeLimitBuy(s, qty, price, time);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.naga.tradingbot.backtest;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Outcome of one backtest run, for the whole account and per symbol.
+ */
+public class BacktestResult {
+
+    private final StrategyParameters parameters;
+    private final double initialValue;
+    private final double finalValue;
+    private final double maxDrawdown;
+    private final String[] symbols;
+    private final double[] symbolPnl;
+    private final int[] symbolTrades;
+    private final int[] symbolRejections;
+    private final int candles;
+    private final int fallbackRuleCount;
+    private final long elapsedMillis;
+
+    public BacktestResult(StrategyParameters parameters, double initialValue, double finalValue, double maxDrawdown,
+                          String[] symbols, double[] symbolPnl, int[] symbolTrades, int[] symbolRejections,
+                          int candles, int fallbackRuleCount, long elapsedMillis) {
+        this.parameters = parameters;
+        this.initialValue = initialValue;
+        this.finalValue = finalValue;
+        this.maxDrawdown = maxDrawdown;
+        this.symbols = symbols;
+        this.symbolPnl = symbolPnl;
+        this.symbolTrades = symbolTrades;
+        this.symbolRejections = symbolRejections;
+        this.candles = candles;
+        this.fallbackRuleCount = fallbackRuleCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public StrategyParameters getParameters() {
+        return parameters;
+    }
+
+    public double getInitialValue() {
+        return initialValue;
+    }
+
+    public double getFinalValue() {
+        return finalValue;
+    }
+
+    public double getPnl() {
+        return finalValue - initialValue;
+    }
+
+    public double getPnlPercent() {
+        return getPnl() / initialValue * 100;
+    }
+
+    /**
+     * Largest fall of the account value from a previous peak, as a fraction of that peak.
+     */
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    public int getTrades() {
+        return Arrays.stream(symbolTrades).sum();
+    }
+
+    public int getRejections() {
+        return Arrays.stream(symbolRejections).sum();
+    }
+
+    public int getCandles() {
+        return candles;
+    }
+
+    /**
+     * Symbols traded with placeholder rules instead of their exchangeInfo filters.
+     */
+    public int getFallbackRuleCount() {
+        return fallbackRuleCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public String[] getSymbols() {
+        return symbols;
+    }
+
+    public double[] getSymbolPnl() {
+        return symbolPnl;
+    }
+
+    public int[] getSymbolTrades() {
+        return symbolTrades;
+    }
+
+    /**
+     * Summary followed by the symbols with the largest absolute PnL.
+     */
+    public String toReport(int topSymbols) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ENGLISH,
+                "Backtest of %d symbols, %d candles in %d ms%n%s%nPnL %.2f USDT (%.2f%%), max drawdown %.2f%%, %d trades, %d rejected orders%n",
+                symbols.length, candles, elapsedMillis, parameters, getPnl(), getPnlPercent(), maxDrawdown * 100,
+                getTrades(), getRejections()));
+        if (fallbackRuleCount > 0) {
+            report.append(String.format(Locale.ENGLISH,
+                    "WARNING: %d symbols traded without their exchangeInfo filters (1e-8 tick, step and min qty); "
+                            + "their rejections and PnL are not realistic%n", fallbackRuleCount));
+        }
+        Integer[] order = new Integer[symbols.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> -Math.abs(symbolPnl[i])));
+        for (int i = 0; i < Math.min(topSymbols, order.length); i++) {
+            int s = order[i];
+            report.append(String.format(Locale.ENGLISH, "%-12s %12.2f USDT %5d trades %4d rejected%n",
+                    symbols[s], symbolPnl[s], symbolTrades[s], symbolRejections[s]));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,187 @@
+package com.naga.tradingbot.backtest;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many strategy parameter combinations over the same {@link BacktestData} on a fork-join pool.
+ * Every worker reads the one shared copy of the candles; only the small per-run account state is
+ * private to a run.
+ */
+public class ParameterSweep {
+
+    private static final Logger logger = Logger.getLogger(ParameterSweep.class);
+
+    private final BacktestEngine engine;
+
+    private final ForkJoinPool pool;
+
+    public ParameterSweep(BacktestEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+    }
+
+    /**
+     * Every combination of the listed values. Combinations whose short average is not shorter than
+     * the long one are left out.
+     */
+    public static List<StrategyParameters> grid(StrategyParameters base, SweepRanges ranges) {
+        List<StrategyParameters> combinations = new ArrayList<>();
+        for (int shortTermMA : ranges.getShortTermMA()) {
+            for (int longTermMA : ranges.getLongTermMA()) {
+                if (shortTermMA >= longTermMA) {
+                    continue;
+                }
+                for (double sellPriceMultiplier : ranges.getSellPriceMultiplier()) {
+                    for (double buyBackPercentage : ranges.getBuyBackPercentage()) {
+                        for (double allocatePercent : ranges.getAllocatePercent()) {
+                            for (double stopLossRatio : ranges.getStopLossRatio()) {
+                                combinations.add(combination(base, shortTermMA, longTermMA, sellPriceMultiplier,
+                                        buyBackPercentage, allocatePercent, stopLossRatio));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return withCommonWarmUp(combinations);
+    }
+
+    /**
+     * {@code samples} combinations drawn uniformly within the listed ranges.
+     */
+    public static List<StrategyParameters> random(StrategyParameters base, SweepRanges ranges, int samples, long seed) {
+        Random random = new Random(seed);
+        List<StrategyParameters> combinations = new ArrayList<>();
+        int attempts = 0;
+        while (combinations.size() < samples && attempts++ < samples * 10) {
+            int shortTermMA = (int) Math.round(draw(random, toDoubles(ranges.getShortTermMA())));
+            int longTermMA = (int) Math.round(draw(random, toDoubles(ranges.getLongTermMA())));
+            if (shortTermMA < 1 || shortTermMA >= longTermMA) {
+                continue;
+            }
+            combinations.add(combination(base, shortTermMA, longTermMA,
+                    draw(random, ranges.getSellPriceMultiplier()), draw(random, ranges.getBuyBackPercentage()),
+                    draw(random, ranges.getAllocatePercent()), draw(random, ranges.getStopLossRatio())));
+        }
+        return withCommonWarmUp(combinations);
+    }
+
+    /**
+     * Runs all combinations in parallel.
+     *
+     * @return results ordered by PnL, best first
+     */
+    public List<BacktestResult> run(List<StrategyParameters> combinations) {
+        long start = System.currentTimeMillis();
+        BacktestResult[] results = new BacktestResult[combinations.size()];
+        AtomicInteger done = new AtomicInteger();
+        pool.invoke(new SweepTask(combinations, results, 0, results.length, done));
+        List<BacktestResult> ranked = new ArrayList<>(Arrays.asList(results));
+        ranked.sort(Comparator.comparingDouble(BacktestResult::getPnl).reversed());
+        logger.info("Sweep of " + results.length + " combinations finished in "
+                + (System.currentTimeMillis() - start) / 1000 + "s on " + pool.getParallelism() + " worker(s)");
+        return ranked;
+    }
+
+    /**
+     * Table of the best {@code top} results.
+     */
+    public static String toTable(List<BacktestResult> ranked, int top) {
+        StringBuilder table = new StringBuilder(String.format(Locale.ENGLISH,
+                "%4s %6s %6s %8s %8s %8s %8s %12s %8s %8s %7s%n", "rank", "short", "long", "sellMul", "buyBack",
+                "alloc%", "stopLoss", "PnL USDT", "PnL %", "maxDD %", "trades"));
+        for (int i = 0; i < Math.min(top, ranked.size()); i++) {
+            BacktestResult result = ranked.get(i);
+            StrategyParameters parameters = result.getParameters();
+            table.append(String.format(Locale.ENGLISH, "%4d %5dd %5dd %8.4f %8.4f %8.2f %8.2f %12.2f %8.2f %8.2f %7d%n",
+                    i + 1, parameters.getShortPeriod() / 24, parameters.getLongPeriod() / 24,
+                    parameters.getSellPriceMultiplier(), parameters.getBuyBackPercentage(),
+                    parameters.getAllocatePercent(), parameters.getStopLossRatio(), result.getPnl(),
+                    result.getPnlPercent(), result.getMaxDrawdown() * 100, result.getTrades()));
+        }
+        return table.toString();
+    }
+
+    private static StrategyParameters combination(StrategyParameters base, int shortTermMA, int longTermMA,
+                                                  double sellPriceMultiplier, double buyBackPercentage,
+                                                  double allocatePercent, double stopLossRatio) {
+        StrategyParameters parameters = base.copy();
+        parameters.setShortPeriod(shortTermMA * 24);
+        parameters.setLongPeriod(longTermMA * 24);
+        parameters.setSellPriceMultiplier(sellPriceMultiplier);
+        parameters.setBuyBackPercentage(buyBackPercentage);
+        parameters.setAllocatePercent(allocatePercent);
+        parameters.setStopLossRatio(stopLossRatio);
+        return parameters;
+    }
+
+    /**
+     * Lets every combination start trading at the same candle, after the longest average is full,
+     * so their results cover the same period.
+     */
+    private static List<StrategyParameters> withCommonWarmUp(List<StrategyParameters> combinations) {
+        int warmUp = 0;
+        for (StrategyParameters parameters : combinations) {
+            warmUp = Math.max(warmUp, parameters.getLongPeriod());
+        }
+        for (StrategyParameters parameters : combinations) {
+            parameters.setWarmUp(warmUp);
+        }
+        return combinations;
+    }
+
+    private static double draw(Random random, double[] values) {
+        double min = Arrays.stream(values).min().orElse(0);
+        double max = Arrays.stream(values).max().orElse(0);
+        return min + random.nextDouble() * (max - min);
+    }
+
+    private static double[] toDoubles(int[] values) {
+        return Arrays.stream(values).asDoubleStream().toArray();
+    }
+
+    private class SweepTask extends RecursiveAction {
+        private final List<StrategyParameters> combinations;
+        private final BacktestResult[] results;
+        private final int from;
+        private final int to;
+        private final AtomicInteger done;
+
+        private SweepTask(List<StrategyParameters> combinations, BacktestResult[] results, int from, int to,
+                          AtomicInteger done) {
+            this.combinations = combinations;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.done = done;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to == from) {
+                    return;
+                }
+                results[from] = engine.run(combinations.get(from));
+                int finished = done.incrementAndGet();
+                if (finished % Math.max(1, results.length / 10) == 0) {
+                    logger.info("Sweep progress " + finished + "/" + results.length);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask(combinations, results, from, middle, done),
+                    new SweepTask(combinations, results, middle, to, done));
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.naga.tradingbot.backtest;
+
+import com.naga.tradingbot.model.data.SymbolMetadata;
+
+/**
+ * Spot account and order book of a backtest, held in primitive arrays indexed by symbol. Like the
+ * bot on Binance, a symbol has at most one open limit sell and one open limit buy. Orders are
+ * checked against PRICE_FILTER, LOT_SIZE and MIN_NOTIONAL and rejected like the exchange would;
+ * limit orders fill at their price once a later candle trades through it.
+ */
+public class SimulatedExchange {
+
+    public static final int SELL_FILLED = 1;
+    public static final int BUY_FILLED = 2;
+
+    /**
+     * Tolerance when checking that a quantity or price is a multiple of its step.
+     */
+    private static final double STEP_EPSILON = 1e-9;
+
+    private final SymbolMetadata[] rules;
+    private final double feeRate;
+
+    private double freeUsdt;
+    private double lockedUsdt;
+    private final double[] freeCoin;
+    private final double[] lockedCoin;
+    private final double[] lastPrice;
+    private double holdingsValue;
+
+    private final boolean[] sellOpen;
+    private final double[] sellPrice;
+    private final double[] sellQty;
+    private final long[] sellTime;
+    private final boolean[] buyOpen;
+    private final double[] buyPrice;
+    private final double[] buyQty;
+    private final long[] buyTime;
+
+    private final boolean[] hasTraded;
+    private final boolean[] lastTradeBuy;
+    private final double[] lastTradePrice;
+
+    private final int[] fills;
+    private final int[] rejections;
+    private final double[] realizedUsdt;
+
+    public SimulatedExchange(SymbolMetadata[] rules, double initialUsdt, double feeRate) {
+        int count = rules.length;
+        this.rules = rules;
+        this.feeRate = feeRate;
+        this.freeUsdt = initialUsdt;
+        this.freeCoin = new double[count];
+        this.lockedCoin = new double[count];
+        this.lastPrice = new double[count];
+        this.sellOpen = new boolean[count];
+        this.sellPrice = new double[count];
+        this.sellQty = new double[count];
+        this.sellTime = new long[count];
+        this.buyOpen = new boolean[count];
+        this.buyPrice = new double[count];
+        this.buyQty = new double[count];
+        this.buyTime = new long[count];
+        this.hasTraded = new boolean[count];
+        this.lastTradeBuy = new boolean[count];
+        this.lastTradePrice = new double[count];
+        this.fills = new int[count];
+        this.rejections = new int[count];
+        this.realizedUsdt = new double[count];
+    }
+
+    /**
+     * Updates the last price of a symbol, used to value its holdings.
+     */
+    public void markPrice(int symbol, double price) {
+        holdingsValue += (freeCoin[symbol] + lockedCoin[symbol]) * (price - lastPrice[symbol]);
+        lastPrice[symbol] = price;
+    }
+
+    /**
+     * Account value in USDT at the last marked prices, locked balances included.
+     */
+    public double getTotalValue() {
+        return freeUsdt + lockedUsdt + holdingsValue;
+    }
+
+    public double getFreeUsdt() {
+        return freeUsdt;
+    }
+
+    public double getFreeCoin(int symbol) {
+        return freeCoin[symbol];
+    }
+
+    public double getTotalCoin(int symbol) {
+        return freeCoin[symbol] + lockedCoin[symbol];
+    }
+
+    public boolean hasOpenOrder(int symbol) {
+        return sellOpen[symbol] || buyOpen[symbol];
+    }
+
+    /**
+     * Price of the oldest open order of the symbol, as openOrders lists it first.
+     */
+    public double getOldestOpenOrderPrice(int symbol) {
+        if (sellOpen[symbol] && (!buyOpen[symbol] || sellTime[symbol] <= buyTime[symbol])) {
+            return sellPrice[symbol];
+        }
+        return buyPrice[symbol];
+    }
+
+    public long getOldestOpenOrderTime(int symbol) {
+        if (sellOpen[symbol] && (!buyOpen[symbol] || sellTime[symbol] <= buyTime[symbol])) {
+            return sellTime[symbol];
+        }
+        return buyTime[symbol];
+    }
+
+    public boolean hasTraded(int symbol) {
+        return hasTraded[symbol];
+    }
+
+    public boolean isLastTradeBuy(int symbol) {
+        return lastTradeBuy[symbol];
+    }
+
+    public double getLastTradePrice(int symbol) {
+        return lastTradePrice[symbol];
+    }
+
+    public int getFills(int symbol) {
+        return fills[symbol];
+    }
+
+    public int getRejections(int symbol) {
+        return rejections[symbol];
+    }
+
+    /**
+     * USDT received from sells minus USDT spent on buys, fees included.
+     */
+    public double getRealizedUsdt(int symbol) {
+        return realizedUsdt[symbol];
+    }
+
+    public boolean placeLimitSell(int symbol, double qty, double price, long time) {
+        if (sellOpen[symbol] || qty > freeCoin[symbol] || !isValid(symbol, qty, price)) {
+            rejections[symbol]++;
+            return false;
+        }
+        freeCoin[symbol] -= qty;
+        lockedCoin[symbol] += qty;
+        sellOpen[symbol] = true;
+        sellPrice[symbol] = price;
+        sellQty[symbol] = qty;
+        sellTime[symbol] = time;
+        return true;
+    }
+
+    public boolean placeLimitBuy(int symbol, double qty, double price, long time) {
+        double cost = qty * price;
+        if (buyOpen[symbol] || cost > freeUsdt || !isValid(symbol, qty, price)) {
+            rejections[symbol]++;
+            return false;
+        }
+        freeUsdt -= cost;
+        lockedUsdt += cost;
+        buyOpen[symbol] = true;
+        buyPrice[symbol] = price;
+        buyQty[symbol] = qty;
+        buyTime[symbol] = time;
+        return true;
+    }
+
+    /**
+     * Buys at the given price right away. Market orders only have to pass LOT_SIZE and MIN_NOTIONAL.
+     */
+    public boolean marketBuy(int symbol, double qty, double price) {
+        double cost = qty * price;
+        if (cost > freeUsdt || !isValidQuantity(symbol, qty) || cost < rules[symbol].getMinNotional()) {
+            rejections[symbol]++;
+            return false;
+        }
+        freeUsdt -= cost;
+        fillBuy(symbol, qty, price, cost);
+        return true;
+    }
+
+    public void cancelBuy(int symbol) {
+        if (buyOpen[symbol]) {
+            double cost = buyQty[symbol] * buyPrice[symbol];
+            lockedUsdt -= cost;
+            freeUsdt += cost;
+            buyOpen[symbol] = false;
+        }
+    }
+
+    public void cancelAll(int symbol) {
+        cancelBuy(symbol);
+        if (sellOpen[symbol]) {
+            lockedCoin[symbol] -= sellQty[symbol];
+            freeCoin[symbol] += sellQty[symbol];
+            sellOpen[symbol] = false;
+        }
+    }
+
+    /**
+     * Fills the open orders of the symbol that the candle traded through.
+     *
+     * @return {@link #SELL_FILLED} and/or {@link #BUY_FILLED} bits
+     */
+    public int match(int symbol, double high, double low) {
+        int filled = 0;
+        if (sellOpen[symbol] && high >= sellPrice[symbol]) {
+            double qty = sellQty[symbol];
+            double proceeds = qty * sellPrice[symbol] * (1 - feeRate);
+            lockedCoin[symbol] -= qty;
+            holdingsValue -= qty * lastPrice[symbol];
+            freeUsdt += proceeds;
+            realizedUsdt[symbol] += proceeds;
+            sellOpen[symbol] = false;
+            recordTrade(symbol, false, sellPrice[symbol]);
+            filled |= SELL_FILLED;
+        }
+        if (buyOpen[symbol] && low <= buyPrice[symbol]) {
+            double cost = buyQty[symbol] * buyPrice[symbol];
+            lockedUsdt -= cost;
+            fillBuy(symbol, buyQty[symbol], buyPrice[symbol], cost);
+            buyOpen[symbol] = false;
+            filled |= BUY_FILLED;
+        }
+        return filled;
+    }
+
+    private void fillBuy(int symbol, double qty, double price, double cost) {
+        // The fee is taken from the bought asset, as on Binance without BNB fee payment
+        double received = qty * (1 - feeRate);
+        freeCoin[symbol] += received;
+        holdingsValue += received * lastPrice[symbol];
+        realizedUsdt[symbol] -= cost;
+        recordTrade(symbol, true, price);
+    }
+
+    private void recordTrade(int symbol, boolean buy, double price) {
+        hasTraded[symbol] = true;
+        lastTradeBuy[symbol] = buy;
+        lastTradePrice[symbol] = price;
+        fills[symbol]++;
+    }
+
+    private boolean isValid(int symbol, double qty, double price) {
+        SymbolMetadata rule = rules[symbol];
+        return price >= rule.getMinPrice()
+                && isMultiple(price, rule.getTickSize())
+                && isValidQuantity(symbol, qty)
+                && qty * price >= rule.getMinNotional();
+    }
+
+    private boolean isValidQuantity(int symbol, double qty) {
+        SymbolMetadata rule = rules[symbol];
+        return qty >= rule.getMinQty() && isMultiple(qty - rule.getMinQty(), rule.getStepSize());
+    }
+
+    private static boolean isMultiple(double value, double step) {
+        if (step <= 0) {
+            return true;
+        }
+        double steps = value / step;
+        return Math.abs(steps - Math.rint(steps)) < STEP_EPSILON * Math.max(1, steps);
+    }
+}
@@ -0,0 +1,156 @@
+package com.naga.tradingbot.backtest;
+
+import com.naga.tradingbot.model.data.PredictionEngine;
+
+/**
+ * Tunable values of the SMA strategy. Defaults are the values the live bot trades with.
+ */
+public class StrategyParameters {
+
+    private int shortPeriod;
+    private int longPeriod;
+    private int warmUp;
+    private double sellPriceMultiplier = PredictionEngine.sellPriceMultiplier;
+    private double buyBackPercentage = PredictionEngine.buyBackAfterThisPercentage;
+    private double allocatePercent = PredictionEngine.altCoinAllocatePercent;
+    private double stopLossRatio = 0.80;
+    private double marketBuyMarginPercent = 10;
+    private long marketBuyAfterMillis = 432000000L;
+    private double initialBalance = 10000;
+    private double feeRate = 0.001;
+
+    /**
+     * @param shortTermMA short average in days, as trading.bot.shortTermMA
+     * @param longTermMA  long average in days, as trading.bot.longTermMA
+     */
+    public static StrategyParameters fromDays(int shortTermMA, int longTermMA) {
+        StrategyParameters parameters = new StrategyParameters();
+        parameters.setShortPeriod(shortTermMA * 24);
+        parameters.setLongPeriod(longTermMA * 24);
+        parameters.setWarmUp(longTermMA * 24);
+        return parameters;
+    }
+
+    public StrategyParameters copy() {
+        StrategyParameters copy = new StrategyParameters();
+        copy.shortPeriod = shortPeriod;
+        copy.longPeriod = longPeriod;
+        copy.warmUp = warmUp;
+        copy.sellPriceMultiplier = sellPriceMultiplier;
+        copy.buyBackPercentage = buyBackPercentage;
+        copy.allocatePercent = allocatePercent;
+        copy.stopLossRatio = stopLossRatio;
+        copy.marketBuyMarginPercent = marketBuyMarginPercent;
+        copy.marketBuyAfterMillis = marketBuyAfterMillis;
+        copy.initialBalance = initialBalance;
+        copy.feeRate = feeRate;
+        return copy;
+    }
+
+    /**
+     * Short average length in candles.
+     */
+    public int getShortPeriod() {
+        return shortPeriod;
+    }
+
+    public void setShortPeriod(int shortPeriod) {
+        this.shortPeriod = shortPeriod;
+    }
+
+    /**
+     * Long average length in candles.
+     */
+    public int getLongPeriod() {
+        return longPeriod;
+    }
+
+    public void setLongPeriod(int longPeriod) {
+        this.longPeriod = longPeriod;
+    }
+
+    /**
+     * Candles of each symbol replayed before the strategy may trade it. The live bot always has
+     * a full long average, so this defaults to the long period.
+     */
+    public int getWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(int warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public double getSellPriceMultiplier() {
+        return sellPriceMultiplier;
+    }
+
+    public void setSellPriceMultiplier(double sellPriceMultiplier) {
+        this.sellPriceMultiplier = sellPriceMultiplier;
+    }
+
+    public double getBuyBackPercentage() {
+        return buyBackPercentage;
+    }
+
+    public void setBuyBackPercentage(double buyBackPercentage) {
+        this.buyBackPercentage = buyBackPercentage;
+    }
+
+    public double getAllocatePercent() {
+        return allocatePercent;
+    }
+
+    public void setAllocatePercent(double allocatePercent) {
+        this.allocatePercent = allocatePercent;
+    }
+
+    /**
+     * Sell at a loss once the price falls below this fraction of the last target price.
+     */
+    public double getStopLossRatio() {
+        return stopLossRatio;
+    }
+
+    public void setStopLossRatio(double stopLossRatio) {
+        this.stopLossRatio = stopLossRatio;
+    }
+
+    public double getMarketBuyMarginPercent() {
+        return marketBuyMarginPercent;
+    }
+
+    public void setMarketBuyMarginPercent(double marketBuyMarginPercent) {
+        this.marketBuyMarginPercent = marketBuyMarginPercent;
+    }
+
+    public long getMarketBuyAfterMillis() {
+        return marketBuyAfterMillis;
+    }
+
+    public void setMarketBuyAfterMillis(long marketBuyAfterMillis) {
+        this.marketBuyAfterMillis = marketBuyAfterMillis;
+    }
+
+    public double getInitialBalance() {
+        return initialBalance;
+    }
+
+    public void setInitialBalance(double initialBalance) {
+        this.initialBalance = initialBalance;
+    }
+
+    public double getFeeRate() {
+        return feeRate;
+    }
+
+    public void setFeeRate(double feeRate) {
+        this.feeRate = feeRate;
+    }
+
+    @Override
+    public String toString() {
+        return "short=" + shortPeriod + "h long=" + longPeriod + "h sellMultiplier=" + sellPriceMultiplier
+                + " buyBack=" + buyBackPercentage + " allocate=" + allocatePercent + "% stopLoss=" + stopLossRatio;
+    }
+}
@@ -0,0 +1,69 @@
+package com.naga.tradingbot.backtest;
+
+/**
+ * Values tried for each strategy parameter in a sweep. A grid search tries every combination; a
+ * random search draws each parameter uniformly between the smallest and largest listed value.
+ */
+public class SweepRanges {
+
+    private int[] shortTermMA;
+    private int[] longTermMA;
+    private double[] sellPriceMultiplier;
+    private double[] buyBackPercentage;
+    private double[] allocatePercent;
+    private double[] stopLossRatio;
+
+    /**
+     * Short average lengths in days.
+     */
+    public int[] getShortTermMA() {
+        return shortTermMA;
+    }
+
+    public void setShortTermMA(int[] shortTermMA) {
+        this.shortTermMA = shortTermMA;
+    }
+
+    /**
+     * Long average lengths in days.
+     */
+    public int[] getLongTermMA() {
+        return longTermMA;
+    }
+
+    public void setLongTermMA(int[] longTermMA) {
+        this.longTermMA = longTermMA;
+    }
+
+    public double[] getSellPriceMultiplier() {
+        return sellPriceMultiplier;
+    }
+
+    public void setSellPriceMultiplier(double[] sellPriceMultiplier) {
+        this.sellPriceMultiplier = sellPriceMultiplier;
+    }
+
+    public double[] getBuyBackPercentage() {
+        return buyBackPercentage;
+    }
+
+    public void setBuyBackPercentage(double[] buyBackPercentage) {
+        this.buyBackPercentage = buyBackPercentage;
+    }
+
+    public double[] getAllocatePercent() {
+        return allocatePercent;
+    }
+
+    public void setAllocatePercent(double[] allocatePercent) {
+        this.allocatePercent = allocatePercent;
+    }
+
+    public double[] getStopLossRatio() {
+        return stopLossRatio;
+    }
+
+    public void setStopLossRatio(double[] stopLossRatio) {
+        this.stopLossRatio = stopLossRatio;
+    }
+}
@@ -10,14 +10,25 @@ public final class AutowiringSpringBeanJobFactory extends SpringBeanJobFactory i
     ApplicationContextAware {
  
     private transient AutowireCapableBeanFactory beanFactory;
+
+    private transient ApplicationContext context;
  
     @Override
     public void setApplicationContext(final ApplicationContext context) {
+        this.context = context;
         beanFactory = context.getAutowireCapableBeanFactory();
     }
  
+    /**
+     * Jobs that are Spring beans run as that bean, so state and worker pools survive between firings.
+     * Other job classes get a new autowired instance per firing.
+     */
     @Override
     protected Object createJobInstance(final TriggerFiredBundle bundle) throws Exception {
+        final String[] beanNames = context.getBeanNamesForType(bundle.getJobDetail().getJobClass());
+        if (beanNames.length == 1) {
+            return context.getBean(beanNames[0]);
+        }
         final Object job = super.createJobInstance(bundle);
         beanFactory.autowireBean(job);
         return job;
@@ -0,0 +1,23 @@
+package com.naga.tradingbot.controller;
+
+import com.naga.tradingbot.metrics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Serves the trading loop metrics as JSON on the bot's web port.
+ */
+@RestController
+public class MetricsController {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        return metricsRegistry.snapshot();
+    }
+}
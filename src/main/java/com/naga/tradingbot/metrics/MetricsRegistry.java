@@ -0,0 +1,83 @@
+package com.naga.tradingbot.metrics;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-process timers, counters and gauges of the bot, looked up by name and served by the metrics
+ * endpoint.
+ */
+@Service
+public class MetricsRegistry {
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<Number>> gauges = new ConcurrentHashMap<>();
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    public void add(String name, long amount) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Registers a value read whenever the metrics are served.
+     */
+    public void gauge(String name, Supplier<Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Runs the call and records its duration under {@code name}. Failures are also counted as
+     * {@code name.errors}.
+     */
+    public <T> T time(String name, Callable<T> call) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (Exception e) {
+            increment(name + ".errors");
+            throw e;
+        } finally {
+            timer(name).record(System.nanoTime() - start);
+        }
+    }
+
+    public void time(String name, Runnable call) {
+        long start = System.nanoTime();
+        try {
+            call.run();
+        } catch (RuntimeException e) {
+            increment(name + ".errors");
+            throw e;
+        } finally {
+            timer(name).record(System.nanoTime() - start);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        Map<String, Object> timerSnapshots = new TreeMap<>();
+        timers.forEach((name, timer) -> timerSnapshots.put(name, timer.snapshot()));
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        Map<String, Number> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.get()));
+        snapshot.put("timers", timerSnapshots);
+        snapshot.put("counters", counterValues);
+        snapshot.put("gauges", gaugeValues);
+        return snapshot;
+    }
+}
@@ -0,0 +1,85 @@
+package com.naga.tradingbot.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed millisecond buckets. Recording is lock free and allocation free;
+ * percentiles are estimated as the upper bound of the bucket they fall in.
+ */
+public class Timer {
+
+    private static final long[] BUCKET_BOUNDS_MILLIS =
+            {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000, Long.MAX_VALUE};
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public Timer() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        long millis = nanos / 1000000;
+        int bucket = 0;
+        while (millis >= BUCKET_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Count, total, mean, max and estimated percentiles in milliseconds plus the bucket counts.
+     */
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("totalMs", totalNanos.sum() / 1e6);
+        snapshot.put("meanMs", total == 0 ? 0 : totalNanos.sum() / 1e6 / total);
+        snapshot.put("maxMs", maxNanos.get() / 1e6);
+        snapshot.put("p50Ms", percentile(counts, total, 0.50));
+        snapshot.put("p95Ms", percentile(counts, total, 0.95));
+        snapshot.put("p99Ms", percentile(counts, total, 0.99));
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            histogram.put(BUCKET_BOUNDS_MILLIS[i] == Long.MAX_VALUE ? "+Inf" : "le" + BUCKET_BOUNDS_MILLIS[i], counts[i]);
+        }
+        snapshot.put("buckets", histogram);
+        return snapshot;
+    }
+
+    private double percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // The open last bucket is reported as the largest value seen
+                return BUCKET_BOUNDS_MILLIS[i] == Long.MAX_VALUE ? maxNanos.get() / 1e6 : BUCKET_BOUNDS_MILLIS[i];
+            }
+        }
+        return maxNanos.get() / 1e6;
+    }
+}
@@ -0,0 +1,160 @@
+package com.naga.tradingbot.model.data;
+
+import com.binance.api.client.domain.market.Candlestick;
+import com.naga.tradingbot.utils.DecimalParser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Read-only view of consecutive candle records of one symbol, usually straight on a memory-mapped
+ * candle archive, so reading a year of history copies nothing to the heap. A record is
+ * {@value #RECORD_SIZE} little-endian bytes: open time, close time, open, high, low, close, volume.
+ * <p>
+ * The records of a view never change. A view may carry the live candle, which has not closed yet and
+ * is not in the archive, as its last entry.
+ */
+public final class CandleView {
+  public static final int RECORD_SIZE = 56;
+
+  private static final int OPEN_TIME = 0;
+  private static final int CLOSE_TIME = 8;
+  private static final int OPEN = 16;
+  private static final int HIGH = 24;
+  private static final int LOW = 32;
+  private static final int CLOSE = 40;
+  private static final int VOLUME = 48;
+
+  private final String symbol;
+  private final ByteBuffer records;
+  private final int offset;
+  private final int count;
+  private final Candlestick live;
+
+  /**
+   * @param records buffer holding the records from absolute position {@code offset}
+   * @param count   number of records in the view
+   */
+  public CandleView(String symbol, ByteBuffer records, int offset, int count) {
+    this(symbol, records.duplicate().order(ByteOrder.LITTLE_ENDIAN), offset, count, null);
+  }
+
+  private CandleView(String symbol, ByteBuffer records, int offset, int count, Candlestick live) {
+    this.symbol = symbol;
+    this.records = records;
+    this.offset = offset;
+    this.count = count;
+    this.live = live;
+  }
+
+  public static CandleView empty(String symbol) {
+    return new CandleView(symbol, ByteBuffer.allocate(0), 0, 0);
+  }
+
+  /** Copies the candles into a heap buffer. */
+  public static CandleView of(String symbol, List<Candlestick> candlesticks) {
+    ByteBuffer records = ByteBuffer.allocate(candlesticks.size() * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    for (Candlestick candlestick : candlesticks) {
+      put(records, candlestick);
+    }
+    return new CandleView(symbol, records, 0, candlesticks.size());
+  }
+
+  /** Writes a record at the position of the buffer, which must be little-endian. */
+  public static void put(ByteBuffer buffer, long openTime, long closeTime, double open, double high, double low,
+                         double close, double volume) {
+    buffer.putLong(openTime).putLong(closeTime).putDouble(open).putDouble(high).putDouble(low).putDouble(close)
+        .putDouble(volume);
+  }
+
+  public static void put(ByteBuffer buffer, Candlestick candlestick) {
+    put(buffer, candlestick.getOpenTime(), candlestick.getCloseTime(),
+        DecimalParser.parseDouble(candlestick.getOpen()), DecimalParser.parseDouble(candlestick.getHigh()),
+        DecimalParser.parseDouble(candlestick.getLow()), DecimalParser.parseDouble(candlestick.getClose()),
+        DecimalParser.parseDouble(candlestick.getVolume()));
+  }
+
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /** Number of candles, the live candle included. */
+  public int size() {
+    return live == null ? count : count + 1;
+  }
+
+  public boolean hasLive() {
+    return live != null;
+  }
+
+  public long getOpenTime(int i) {
+    return i < count ? records.getLong(position(i) + OPEN_TIME) : live.getOpenTime();
+  }
+
+  public long getCloseTime(int i) {
+    return i < count ? records.getLong(position(i) + CLOSE_TIME) : live.getCloseTime();
+  }
+
+  public double getOpen(int i) {
+    return i < count ? records.getDouble(position(i) + OPEN) : DecimalParser.parseDouble(live.getOpen());
+  }
+
+  public double getHigh(int i) {
+    return i < count ? records.getDouble(position(i) + HIGH) : DecimalParser.parseDouble(live.getHigh());
+  }
+
+  public double getLow(int i) {
+    return i < count ? records.getDouble(position(i) + LOW) : DecimalParser.parseDouble(live.getLow());
+  }
+
+  public double getClose(int i) {
+    return i < count ? records.getDouble(position(i) + CLOSE) : DecimalParser.parseDouble(live.getClose());
+  }
+
+  public double getVolume(int i) {
+    return i < count ? records.getDouble(position(i) + VOLUME) : DecimalParser.parseDouble(live.getVolume());
+  }
+
+  /** Close time of the newest closed candle, Long.MIN_VALUE if there is none. */
+  public long getLastClosedCloseTime() {
+    return count == 0 ? Long.MIN_VALUE : records.getLong(position(count - 1) + CLOSE_TIME);
+  }
+
+  /** The same closed candles with {@code live} as the newest entry. */
+  public CandleView withLive(Candlestick live) {
+    return new CandleView(symbol, records, offset, count, live);
+  }
+
+  /** The closed candles from index {@code from} (inclusive) to {@code to} (exclusive), sharing the records. */
+  public CandleView range(int from, int to) {
+    if (from < 0 || to > count || from > to) {
+      throw new IndexOutOfBoundsException("Range " + from + ".." + to + " of " + count + " candles");
+    }
+    return new CandleView(symbol, records, position(from), to - from, null);
+  }
+
+  /** The closed candles that opened at or after {@code openTime}, sharing the records. */
+  public CandleView from(long openTime) {
+    return range(indexOf(openTime), count);
+  }
+
+  /** Index of the first closed candle that opened at or after {@code openTime}. */
+  public int indexOf(long openTime) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (records.getLong(position(middle) + OPEN_TIME) < openTime) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int position(int i) {
+    return offset + i * RECORD_SIZE;
+  }
+}
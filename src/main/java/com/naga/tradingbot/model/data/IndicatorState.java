@@ -0,0 +1,57 @@
+package com.naga.tradingbot.model.data;
+
+/**
+ * Per-symbol indicator state kept between cycles: the short and long SMA windows over closed
+ * candles, the close time of the last candle added to them and the values of the latest evaluation.
+ */
+public class IndicatorState {
+  private final SmaWindow shortTermWindow;
+  private final SmaWindow longTermWindow;
+  private long lastCloseTime = Long.MIN_VALUE;
+  private double currentPrice;
+  private double shortTermAverage;
+  private double longTermAverage;
+
+  public IndicatorState(int shortTermPeriod, int longTermPeriod) {
+    this.shortTermWindow = new SmaWindow(shortTermPeriod);
+    this.longTermWindow = new SmaWindow(longTermPeriod);
+  }
+
+  public SmaWindow getShortTermWindow() {
+    return shortTermWindow;
+  }
+
+  public SmaWindow getLongTermWindow() {
+    return longTermWindow;
+  }
+
+  public long getLastCloseTime() {
+    return lastCloseTime;
+  }
+
+  public double getCurrentPrice() {
+    return currentPrice;
+  }
+
+  public double getShortTermAverage() {
+    return shortTermAverage;
+  }
+
+  public double getLongTermAverage() {
+    return longTermAverage;
+  }
+
+  /** Adds a closed candle to both windows. */
+  public void addClosed(long closeTime, double close) {
+    shortTermWindow.add(close);
+    longTermWindow.add(close);
+    lastCloseTime = closeTime;
+  }
+
+  /** Evaluates both averages with the given live price as the newest value. */
+  public void evaluate(double livePrice) {
+    currentPrice = livePrice;
+    shortTermAverage = shortTermWindow.averageWith(livePrice);
+    longTermAverage = longTermWindow.averageWith(livePrice);
+  }
+}
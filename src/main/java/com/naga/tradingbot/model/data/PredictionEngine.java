@@ -1,24 +1,31 @@
 package com.naga.tradingbot.model.data;
 
 import com.naga.tradingbot.utils.CalcUtils;
-import org.jfree.chart.JFreeChart;
 
 public class PredictionEngine {
-  public static Double buyBackAfterThisPercentage = 0.990;
-  public static Double sellPriceMultiplier = 1.018;
-  public static Double altCoinAllocatePercent = 2.5;
-  private Double targetPrice;
-  private Double lastShortTermPrice;
-  private Double currentPrice;
-  private String tradeSignal = "DONOTHING";
-  private JFreeChart jFreeChart;
-
-  public JFreeChart getjFreeChart() {
-    return jFreeChart;
+  public static double buyBackAfterThisPercentage = 0.990;
+  public static double sellPriceMultiplier = 1.018;
+  public static double altCoinAllocatePercent = 2.5;
+  public static final String SIGNAL_DONOTHING = "DONOTHING";
+  public static final String SIGNAL_GOOD_BUY = "GOOD BUY";
+  public static final String SIGNAL_RISK_BUY = "RISK BUY";
+  public static final String SIGNAL_SELL = "SELL";
+  private double targetPrice;
+  private double lastShortTermPrice;
+  private double currentPrice;
+  private String tradeSignal = SIGNAL_DONOTHING;
+  private CandleView candles;
+
+  /**
+   * Candles the decision was made on, for the SMA chart sent with a buy. Charts are only needed when
+   * one is sent to Telegram, so they are not created on the decision path.
+   */
+  public CandleView getCandles() {
+    return candles;
   }
 
-  public void setjFreeChart(JFreeChart jFreeChart) {
-    this.jFreeChart = jFreeChart;
+  public void setCandles(CandleView candles) {
+    this.candles = candles;
   }
 
   public String getTradeSignal() {
@@ -30,31 +37,48 @@ public class PredictionEngine {
   }
 
 
-  public Double getTargetPrice() {
+  public double getTargetPrice() {
     return targetPrice;
   }
 
-  public void setTargetPrice(Double targetPrice) {
+  public void setTargetPrice(double targetPrice) {
     this.targetPrice = targetPrice;
   }
 
-  public Double getLastShortTermPrice() {
+  public double getLastShortTermPrice() {
     return lastShortTermPrice;
   }
 
-  public void setLastShortTermPrice(Double lastShortTermPrice) {
+  public void setLastShortTermPrice(double lastShortTermPrice) {
     this.lastShortTermPrice = lastShortTermPrice;
   }
 
-  public Double getCurrentPrice() {
+  public double getCurrentPrice() {
     return currentPrice;
   }
 
-  public void setCurrentPrice(Double currentPrice) {
+  public void setCurrentPrice(double currentPrice) {
     this.currentPrice = currentPrice;
   }
 
 
+  /**
+   * SMA crossover classification used by the live engine and the backtest. Equal averages are a SELL,
+   * as they always were for the live engine.
+   *
+   * @param shortSMA            short term moving average
+   * @param longSMA             long term moving average
+   * @param currentPrice        last price
+   * @param sellPriceMultiplier how far above the short average a buy counts as GOOD BUY
+   * @return one of the SIGNAL_ constants
+   */
+  public static String classifySignal(double shortSMA, double longSMA, double currentPrice, double sellPriceMultiplier) {
+    if (shortSMA > longSMA) {
+      return currentPrice >= shortSMA * sellPriceMultiplier ? SIGNAL_GOOD_BUY : SIGNAL_RISK_BUY;
+    }
+    return SIGNAL_SELL;
+  }
+
   /** PredictionEngine constructor */
   public PredictionEngine() {
   }
@@ -0,0 +1,77 @@
+package com.naga.tradingbot.model.data;
+
+/**
+ * Running simple moving average over the last {@code period} closed values. Adding a value and
+ * reading the average are both O(1).
+ */
+public class SmaWindow {
+  private final int period;
+  private final double[] values;
+  private int next;
+  private int count;
+  private double sum;
+  private int addsSinceResync;
+
+  public SmaWindow(int period) {
+    if (period < 1) {
+      throw new IllegalArgumentException("SMA period must be positive: " + period);
+    }
+    this.period = period;
+    this.values = new double[period];
+  }
+
+  public int getPeriod() {
+    return period;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public double getSum() {
+    return sum;
+  }
+
+  /** Average of the values in the window, all of them while it is not full yet. */
+  public double getAverage() {
+    return count == 0 ? Double.NaN : sum / count;
+  }
+
+  /** Adds the close of a newly closed candle, evicting the oldest one once the window is full. */
+  public void add(double value) {
+    if (count == period) {
+      sum -= values[next];
+    } else {
+      count++;
+    }
+    values[next] = value;
+    sum += value;
+    next = (next + 1) % period;
+    // Re-add the window from scratch once per period so rounding errors cannot accumulate
+    if (++addsSinceResync >= period) {
+      resync();
+    }
+  }
+
+  /**
+   * Average of the window where the newest slot holds the live (not yet closed) value. Matches a
+   * moving average over the closed values followed by the live one: while fewer than period values
+   * exist, all of them are averaged.
+   */
+  public double averageWith(double live) {
+    if (count < period) {
+      return (sum + live) / (count + 1);
+    }
+    // When full, next points at the oldest closed value which the live value pushes out
+    return (sum - values[next] + live) / period;
+  }
+
+  private void resync() {
+    double exact = 0.0;
+    for (int i = 0; i < count; i++) {
+      exact += values[i];
+    }
+    sum = exact;
+    addsSinceResync = 0;
+  }
+}
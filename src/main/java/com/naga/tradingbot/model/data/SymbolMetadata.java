@@ -0,0 +1,131 @@
+package com.naga.tradingbot.model.data;
+
+import com.naga.tradingbot.utils.CalcUtils;
+import com.naga.tradingbot.utils.FixedDecimal;
+
+import java.math.BigDecimal;
+
+/**
+ * Trading rules of one symbol, parsed once from exchangeInfo: PRICE_FILTER, LOT_SIZE and
+ * MIN_NOTIONAL values plus the decimal precision derived from them. Order prices and quantities
+ * are rounded to the tick and step in {@link FixedDecimal} units.
+ */
+public class SymbolMetadata {
+  private final String symbol;
+  private final String baseAsset;
+  private final String quoteAsset;
+  private final double minPrice;
+  private final double tickSize;
+  private final double minQty;
+  private final double stepSize;
+  private final double minNotional;
+  private final int pricePrecision;
+  private final int quantityPrecision;
+  private final long tickUnits;
+  private final long stepUnits;
+  private final long minQtyUnits;
+
+  public SymbolMetadata(String symbol, String baseAsset, String quoteAsset, String minPrice, String tickSize,
+                        String minQty, String stepSize, String minNotional) {
+    this.symbol = symbol;
+    this.baseAsset = baseAsset;
+    this.quoteAsset = quoteAsset;
+    this.minPrice = parse(minPrice);
+    this.tickSize = parse(tickSize);
+    this.minQty = parse(minQty);
+    this.stepSize = parse(stepSize);
+    this.minNotional = parse(minNotional);
+    this.pricePrecision = decimalPlaces(this.tickSize > 0 ? tickSize : minPrice);
+    this.quantityPrecision = decimalPlaces(this.stepSize > 0 ? stepSize : minQty);
+    // Without a filter value fall back to the finest step the precision allows
+    this.tickUnits = this.tickSize > 0 ? FixedDecimal.parse(tickSize) : stepOf(pricePrecision);
+    this.stepUnits = this.stepSize > 0 ? FixedDecimal.parse(stepSize) : stepOf(quantityPrecision);
+    this.minQtyUnits = this.minQty > 0 ? FixedDecimal.parse(minQty) : 0;
+  }
+
+  public String getSymbol() {
+    return symbol;
+  }
+
+  public String getBaseAsset() {
+    return baseAsset;
+  }
+
+  public String getQuoteAsset() {
+    return quoteAsset;
+  }
+
+  public double getMinPrice() {
+    return minPrice;
+  }
+
+  public double getTickSize() {
+    return tickSize;
+  }
+
+  public double getMinQty() {
+    return minQty;
+  }
+
+  public double getStepSize() {
+    return stepSize;
+  }
+
+  public double getMinNotional() {
+    return minNotional;
+  }
+
+  /** Number of decimals allowed in a price of this symbol. */
+  public int getPricePrecision() {
+    return pricePrecision;
+  }
+
+  /** Number of decimals allowed in a quantity of this symbol. */
+  public int getQuantityPrecision() {
+    return quantityPrecision;
+  }
+
+  /** Price floored to a multiple of the tick size, in {@link FixedDecimal} units. */
+  public long floorPrice(long price) {
+    return FixedDecimal.floorToStep(price, tickUnits);
+  }
+
+  /** Price rounded to the nearest multiple of the tick size, in {@link FixedDecimal} units. */
+  public long roundPrice(long price) {
+    return FixedDecimal.roundToStep(price, tickUnits);
+  }
+
+  /**
+   * Quantity floored to a multiple of the step size, in {@link FixedDecimal} units; 0 if that is
+   * below minQty. Binance lists minQty as a multiple of the step, so this is what LOT_SIZE accepts.
+   */
+  public long floorQuantity(long quantity) {
+    long floored = FixedDecimal.floorToStep(quantity, stepUnits);
+    return floored < minQtyUnits || floored <= 0 ? 0 : floored;
+  }
+
+  /** Order parameter text of a price in {@link FixedDecimal} units. */
+  public String formatPrice(long price) {
+    return FixedDecimal.toString(price, pricePrecision);
+  }
+
+  /** Order parameter text of a quantity in {@link FixedDecimal} units. */
+  public String formatQuantity(long quantity) {
+    return FixedDecimal.toString(quantity, quantityPrecision);
+  }
+
+  private static long stepOf(int precision) {
+    return FixedDecimal.SCALE / (long) CalcUtils.powerOfTen(Math.min(Math.max(precision, 0), FixedDecimal.DECIMALS));
+  }
+
+  private static double parse(String value) {
+    return value == null ? 0.0 : Double.parseDouble(value);
+  }
+
+  private static int decimalPlaces(String value) {
+    if (value == null) {
+      return 0;
+    }
+    return Math.max(new BigDecimal(value).stripTrailingZeros().scale(), 0);
+  }
+}
@@ -0,0 +1,72 @@
+package com.naga.tradingbot.model.data;
+
+import com.binance.api.client.domain.OrderSide;
+import com.binance.api.client.domain.OrderStatus;
+
+/**
+ * An order submitted by the bot whose lifecycle is followed until it is filled, canceled or times out.
+ */
+public class TrackedOrder {
+  private final String symbol;
+  private final long orderId;
+  private final OrderSide side;
+  private final boolean stopLoss;
+  private final long submittedAt;
+  private final long timeoutMillis;
+  private final Runnable onFilled;
+  private volatile OrderStatus status = OrderStatus.NEW;
+
+  public TrackedOrder(String symbol, long orderId, OrderSide side, boolean stopLoss, long submittedAt,
+                      long timeoutMillis, Runnable onFilled) {
+    this.symbol = symbol;
+    this.orderId = orderId;
+    this.side = side;
+    this.stopLoss = stopLoss;
+    this.submittedAt = submittedAt;
+    this.timeoutMillis = timeoutMillis;
+    this.onFilled = onFilled;
+  }
+
+  public String getSymbol() {
+    return symbol;
+  }
+
+  public long getOrderId() {
+    return orderId;
+  }
+
+  public OrderSide getSide() {
+    return side;
+  }
+
+  /** True for a stop loss sell, which is not bought back once filled. */
+  public boolean isStopLoss() {
+    return stopLoss;
+  }
+
+  public long getSubmittedAt() {
+    return submittedAt;
+  }
+
+  public Runnable getOnFilled() {
+    return onFilled;
+  }
+
+  public OrderStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(OrderStatus status) {
+    this.status = status;
+  }
+
+  public boolean isTimedOut(long now) {
+    return now - submittedAt > timeoutMillis;
+  }
+
+  /** True once the order can no longer change, i.e. it was filled, canceled, rejected or expired. */
+  public boolean isDone() {
+    return status == OrderStatus.FILLED || status == OrderStatus.CANCELED
+        || status == OrderStatus.REJECTED || status == OrderStatus.EXPIRED;
+  }
+}
@@ -0,0 +1,113 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.account.Account;
+import com.binance.api.client.domain.account.AssetBalance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Account balances loaded once per scan cycle instead of on every balance lookup. Orders the bot
+ * submits itself are reserved in the snapshot locally; fills, cancels and the TTL invalidate it.
+ * <p>
+ * The snapshot is only read and changed under this service's lock. Callers get copies, so a scan
+ * worker never sees another worker's reservation half applied.
+ */
+@Service
+public class AccountSnapshotService {
+
+    @Autowired
+    private BotEngine botEngine;
+
+    @Value("${trading.bot.account.ttlMillis:60000}")
+    private long ttlMillis;
+
+    private Account account;
+
+    private long loadedAt;
+
+    /**
+     * Returns a copy of the current snapshot, loading it from Binance if there is none or it expired.
+     * The balance list of the copy cannot be modified.
+     */
+    public synchronized Account get() {
+        return copy(load());
+    }
+
+    /**
+     * Drops the snapshot so the next lookup loads it again. Called at the start of every scan cycle
+     * and whenever balances change in a way that cannot be applied locally.
+     */
+    public synchronized void invalidate() {
+        account = null;
+    }
+
+    /**
+     * Reserves an amount for a limit order about to be submitted: if enough of the asset is free, the
+     * amount moves from free to locked in one step, so two workers cannot both spend the same balance.
+     * If the order is then not submitted, {@link #invalidate()} drops the reservation.
+     *
+     * @param asset  asset reserved by the order, the base asset for sells and USDT for buys
+     * @param amount amount of the asset reserved
+     * @return false if less than amount is free
+     */
+    public synchronized boolean tryReserve(String asset, double amount) {
+        AssetBalance balance = findBalance(load(), asset);
+        if (balance == null) {
+            return false;
+        }
+        BigDecimal reserved = BigDecimal.valueOf(amount);
+        BigDecimal free = new BigDecimal(balance.getFree());
+        if (free.compareTo(reserved) < 0) {
+            return false;
+        }
+        BigDecimal locked = new BigDecimal(balance.getLocked());
+        balance.setFree(free.subtract(reserved).toPlainString());
+        balance.setLocked(locked.add(reserved).toPlainString());
+        return true;
+    }
+
+    private Account load() {
+        if (account == null || System.currentTimeMillis() - loadedAt > ttlMillis) {
+            account = botEngine.getClient().getAccount();
+            loadedAt = System.currentTimeMillis();
+        }
+        return account;
+    }
+
+    private static Account copy(Account account) {
+        Account copy = new Account();
+        copy.setMakerCommission(account.getMakerCommission());
+        copy.setTakerCommission(account.getTakerCommission());
+        copy.setBuyerCommission(account.getBuyerCommission());
+        copy.setSellerCommission(account.getSellerCommission());
+        copy.setCanTrade(account.isCanTrade());
+        copy.setCanWithdraw(account.isCanWithdraw());
+        copy.setCanDeposit(account.isCanDeposit());
+        copy.setUpdateTime(account.getUpdateTime());
+        List<AssetBalance> balances = new ArrayList<>(account.getBalances().size());
+        for (AssetBalance balance : account.getBalances()) {
+            AssetBalance balanceCopy = new AssetBalance();
+            balanceCopy.setAsset(balance.getAsset());
+            balanceCopy.setFree(balance.getFree());
+            balanceCopy.setLocked(balance.getLocked());
+            balances.add(balanceCopy);
+        }
+        copy.setBalances(Collections.unmodifiableList(balances));
+        return copy;
+    }
+
+    private static AssetBalance findBalance(Account account, String asset) {
+        for (AssetBalance balance : account.getBalances()) {
+            if (balance.getAsset().equals(asset)) {
+                return balance;
+            }
+        }
+        return null;
+    }
+}
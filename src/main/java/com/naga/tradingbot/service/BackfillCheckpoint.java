@@ -0,0 +1,84 @@
+package com.naga.tradingbot.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Backfill progress: for every symbol and interval, the month windows already checked against the
+ * exchange with the number of candles they hold. A window whose stored count still matches is not
+ * fetched again, so gaps the exchange itself has are only looked up once. The file is replaced
+ * atomically on every save.
+ */
+public class BackfillCheckpoint {
+
+    private final Path file;
+
+    private final Map<String, Map<Long, Integer>> verified = new TreeMap<>();
+
+    public BackfillCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    public synchronized void load() throws IOException {
+        verified.clear();
+        if (!Files.exists(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            Map<Long, Integer> windows = new TreeMap<>();
+            for (String window : properties.getProperty(key).split(",")) {
+                int separator = window.indexOf(':');
+                if (separator > 0) {
+                    windows.put(Long.parseLong(window.substring(0, separator).trim()),
+                            Integer.parseInt(window.substring(separator + 1).trim()));
+                }
+            }
+            verified.put(key, windows);
+        }
+    }
+
+    /**
+     * Candles stored in the verified window starting at windowStart, null if it was not verified.
+     */
+    public synchronized Integer getVerifiedCount(String key, long windowStart) {
+        Map<Long, Integer> windows = verified.get(key);
+        return windows == null ? null : windows.get(windowStart);
+    }
+
+    public synchronized void markVerified(String key, long windowStart, int count) {
+        verified.computeIfAbsent(key, k -> new TreeMap<>()).put(windowStart, count);
+    }
+
+    public synchronized void save() throws IOException {
+        Properties properties = new Properties();
+        verified.forEach((key, windows) -> {
+            StringBuilder value = new StringBuilder();
+            windows.forEach((windowStart, count) -> {
+                if (value.length() > 0) {
+                    value.append(',');
+                }
+                value.append(windowStart).append(':').append(count);
+            });
+            properties.setProperty(key, value.toString());
+        });
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Backfill windows verified against the exchange: windowStart:candles");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
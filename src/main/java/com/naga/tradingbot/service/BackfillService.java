@@ -0,0 +1,367 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.market.Candlestick;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.metrics.MetricsRegistry;
+import com.naga.tradingbot.model.data.CandleView;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seeds the {@link CandleStore} with kline history, for a new node or after an outage. Symbols are
+ * backfilled in parallel; every call goes through the {@link BinanceRateLimiter}, so the worker count
+ * only decides how much of the request budget can be in flight.
+ * <p>
+ * The history is checked in calendar month windows (UTC). A window is fetched only if its stored
+ * candles have a gap or an overlap, or do not reach its edges, and a window that is not complete at the
+ * exchange either is remembered in the {@link BackfillCheckpoint} so it is not fetched on every run.
+ * Windows newer than the stored history are appended; holes inside it are repaired by rewriting the
+ * symbol once. A crashed backfill resumes from what is stored and checkpointed.
+ */
+@Service
+public class BackfillService {
+
+    private static final Logger logger = Logger.getLogger(BackfillService.class);
+
+    private static final int KLINE_PAGE_LIMIT = 1000;
+
+    private static final int PAGE_ATTEMPTS = 3;
+
+    @Autowired
+    private BotEngine botEngine;
+
+    @Autowired
+    private BotExecuteJob botExecuteJob;
+
+    @Autowired
+    private CandleStore candleStore;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * Comma separated symbols to backfill; all USDT symbols if empty.
+     */
+    @Value("${trading.bot.backfill.symbols:}")
+    private String symbols;
+
+    /**
+     * Comma separated Binance interval ids, e.g. 1h,1d.
+     */
+    @Value("${trading.bot.backfill.intervals:1h}")
+    private String intervals;
+
+    /**
+     * Calendar months of history before the current one.
+     */
+    @Value("${trading.bot.backfill.months:12}")
+    private int months;
+
+    @Value("${trading.bot.backfill.threads:4}")
+    private int threads;
+
+    @Value("${trading.bot.backfill.checkpoint:candles/backfill.checkpoint}")
+    private String checkpointFile;
+
+    private BackfillCheckpoint checkpoint;
+
+    private final AtomicLong candles = new AtomicLong();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong gaps = new AtomicLong();
+
+    private final AtomicLong overlaps = new AtomicLong();
+
+    private final AtomicLong windowsFetched = new AtomicLong();
+
+    private long started;
+
+    /**
+     * Backfills the configured symbols and intervals and logs the throughput.
+     */
+    public void run() throws InterruptedException {
+        checkpoint = new BackfillCheckpoint(Paths.get(checkpointFile));
+        try {
+            checkpoint.load();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to read backfill checkpoint " + checkpointFile + ". Checking every window", e);
+        }
+        List<String> tickers = StringUtils.isEmpty(symbols) ? botExecuteJob.getAllTickers()
+                : Arrays.asList(StringUtils.commaDelimitedListToStringArray(symbols.replace(" ", "")));
+        String[] intervalIds = StringUtils.commaDelimitedListToStringArray(intervals.replace(" ", ""));
+        int total = intervalIds.length * tickers.size();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        AtomicInteger done = new AtomicInteger();
+        for (String intervalId : intervalIds) {
+            CandlestickInterval interval = getInterval(intervalId);
+            for (String ticker : tickers) {
+                tasks.add(() -> {
+                    backfillTimed(ticker, interval, done.incrementAndGet(), total);
+                    return null;
+                });
+            }
+        }
+        logger.info("Backfilling " + months + " month(s) of " + tasks.size() + " symbol interval(s) on " + threads
+                + " worker(s)");
+        started = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            pool.invokeAll(tasks);
+        } finally {
+            pool.shutdownNow();
+            saveCheckpoint();
+        }
+        long elapsed = System.currentTimeMillis() - started;
+        logger.info("Backfill finished in " + elapsed / 1000 + "s: " + candles.get() + " candles in " + requests.get()
+                + " requests (" + getCandlesPerSecond() + " candles/s), " + windowsFetched.get()
+                + " window(s) fetched, " + gaps.get() + " gap(s) and " + overlaps.get() + " overlap(s) found");
+    }
+
+    private void backfillTimed(String ticker, CandlestickInterval interval, int done, int total) {
+        try {
+            long fetched = metricsRegistry.time("backfill.symbol", () -> backfill(ticker, interval));
+            saveCheckpoint();
+            logger.info("Backfilled " + ticker + " " + interval.getIntervalId() + " (" + done + "/" + total + "): "
+                    + fetched + " candles, " + getCandlesPerSecond() + " candles/s overall");
+        } catch (Exception e) {
+            logger.error("Unable to backfill " + ticker + " " + interval.getIntervalId(), e);
+        }
+    }
+
+    /**
+     * Brings the stored history of one symbol up to date and repairs its gaps and overlaps.
+     *
+     * @return number of candles fetched
+     */
+    public long backfill(String ticker, CandlestickInterval interval) {
+        long step = getIntervalMillis(interval);
+        long now = System.currentTimeMillis();
+        String key = ticker + "_" + interval.getIntervalId();
+        List<Window> repairs = new ArrayList<>();
+        long fetchedCount = 0;
+        // The whole history: a CSV store drops the rows before the window start of a read. Read once, as
+        // appends below only add candles after every stored one, before the windows still to come
+        CandleView history = candleStore.view(ticker, interval, Long.MIN_VALUE);
+        long lastCloseTime = candleStore.getLastCloseTime(ticker, interval);
+        for (Window window : getWindows(now)) {
+            long end = Math.min(window.end, now);
+            CandleView stored = history.from(window.start);
+            int count = stored.indexOf(window.end);
+            Integer verifiedCount = checkpoint.getVerifiedCount(key, window.start);
+            if (verifiedCount != null && verifiedCount == count) {
+                continue;
+            }
+            int holes = countGaps(stored, count, step);
+            boolean headComplete = count > 0 && stored.getOpenTime(0) < window.start + step;
+            boolean tailComplete = count > 0 && stored.getCloseTime(count - 1) >= end - step;
+            if (holes == 0 && headComplete && tailComplete) {
+                markVerified(key, window, now, count);
+                continue;
+            }
+            boolean newest = count > 0 ? stored.getCloseTime(count - 1) == lastCloseTime : window.start > lastCloseTime;
+            if (newest && (count == 0 || holes == 0 && headComplete)) {
+                // Nothing is stored after the window, so the missing candles can be appended
+                long from = count > 0 ? lastCloseTime + 1 : window.start;
+                List<Candlestick> fetched = fetch(ticker, interval, from, end, now);
+                fetchedCount += fetched.size();
+                candleStore.append(ticker, interval, fetched);
+                if (!fetched.isEmpty()) {
+                    lastCloseTime = fetched.get(fetched.size() - 1).getCloseTime();
+                }
+                markVerified(key, window, now, count + fetched.size());
+            } else {
+                gaps.addAndGet(holes);
+                window.candles = fetch(ticker, interval, window.start, end, now);
+                fetchedCount += window.candles.size();
+                logger.info(ticker + " " + interval.getIntervalId() + " window " + window.start + ": " + count
+                        + " stored candles with " + holes + " gap(s) or overlap(s). Fetched " + window.candles.size()
+                        + " to repair it");
+                repairs.add(window);
+            }
+        }
+        if (!repairs.isEmpty()) {
+            rewrite(ticker, interval, repairs);
+            for (Window window : repairs) {
+                markVerified(key, window, now, window.candles.size());
+            }
+        }
+        return fetchedCount;
+    }
+
+    /**
+     * Rewrites the stored candles of a symbol with the repaired windows in place of their stored candles.
+     */
+    private void rewrite(String ticker, CandlestickInterval interval, List<Window> repairs) {
+        CandleView stored = candleStore.view(ticker, interval, Long.MIN_VALUE);
+        List<Candlestick> merged = new ArrayList<>(stored.size());
+        int next = 0;
+        for (Window window : repairs) {
+            int start = Math.max(next, stored.indexOf(window.start));
+            merged.addAll(CandleStore.toCandlesticks(stored.range(next, start)));
+            merged.addAll(window.candles);
+            next = Math.max(start, stored.indexOf(window.end));
+        }
+        merged.addAll(CandleStore.toCandlesticks(stored.range(next, stored.size())));
+        candleStore.replace(ticker, interval, merged);
+    }
+
+    /**
+     * Closed candles that open from startTime up to endTime, without the overlaps of the pages.
+     */
+    private List<Candlestick> fetch(String ticker, CandlestickInterval interval, long startTime, long endTime,
+                                    long now) {
+        windowsFetched.incrementAndGet();
+        List<Candlestick> fetched = new ArrayList<>();
+        long lastOpenTime = Long.MIN_VALUE;
+        while (startTime < endTime) {
+            List<Candlestick> page = fetchPage(ticker, interval, startTime, endTime - 1);
+            for (Candlestick candlestick : page) {
+                if (candlestick.getOpenTime() <= lastOpenTime) {
+                    overlaps.incrementAndGet();
+                } else if (candlestick.getCloseTime() < now) {
+                    fetched.add(candlestick);
+                    lastOpenTime = candlestick.getOpenTime();
+                }
+            }
+            if (page.size() < KLINE_PAGE_LIMIT) {
+                break;
+            }
+            startTime = page.get(page.size() - 1).getCloseTime() + 1;
+        }
+        candles.addAndGet(fetched.size());
+        metricsRegistry.add("backfill.candles", fetched.size());
+        return fetched;
+    }
+
+    private List<Candlestick> fetchPage(String ticker, CandlestickInterval interval, long startTime, long endTime) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                requests.incrementAndGet();
+                return botEngine.getClient().getCandlestickBars(ticker, interval, KLINE_PAGE_LIMIT, startTime, endTime);
+            } catch (RuntimeException e) {
+                if (attempt == PAGE_ATTEMPTS || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                // A rate limit error holds back the next call in the limiter
+                logger.info("Retrying " + ticker + " klines from " + startTime + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Counts the places where consecutive stored candles are not exactly one interval apart.
+     */
+    private static int countGaps(CandleView candles, int count, long step) {
+        int holes = 0;
+        for (int i = 1; i < count; i++) {
+            if (candles.getOpenTime(i) - candles.getOpenTime(i - 1) != step) {
+                holes++;
+            }
+        }
+        return holes;
+    }
+
+    /**
+     * Only windows that are over can be verified; the current month keeps growing.
+     */
+    private void markVerified(String key, Window window, long now, int count) {
+        if (window.end <= now) {
+            checkpoint.markVerified(key, window.start, count);
+        }
+    }
+
+    private void saveCheckpoint() {
+        try {
+            checkpoint.save();
+        } catch (IOException e) {
+            logger.error("Unable to save backfill checkpoint " + checkpointFile, e);
+        }
+    }
+
+    private long getCandlesPerSecond() {
+        long elapsed = System.currentTimeMillis() - started;
+        return elapsed <= 0 ? 0 : candles.get() * 1000 / elapsed;
+    }
+
+    /**
+     * Calendar months (UTC) from the configured number of months ago up to the current one.
+     */
+    private List<Window> getWindows(long now) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(now);
+        calendar.add(Calendar.MONTH, -months);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        List<Window> windows = new ArrayList<>();
+        while (calendar.getTimeInMillis() < now) {
+            long start = calendar.getTimeInMillis();
+            calendar.add(Calendar.MONTH, 1);
+            windows.add(new Window(start, calendar.getTimeInMillis()));
+        }
+        return windows;
+    }
+
+    private static CandlestickInterval getInterval(String intervalId) {
+        for (CandlestickInterval interval : CandlestickInterval.values()) {
+            if (interval.getIntervalId().equals(intervalId)) {
+                getIntervalMillis(interval);
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Unknown candle interval " + intervalId);
+    }
+
+    /**
+     * Length of a candle; monthly candles vary in length and are not supported.
+     */
+    private static long getIntervalMillis(CandlestickInterval interval) {
+        String id = interval.getIntervalId();
+        long amount = Long.parseLong(id.substring(0, id.length() - 1));
+        switch (id.charAt(id.length() - 1)) {
+            case 'm':
+                return amount * 60 * 1000L;
+            case 'h':
+                return amount * 60 * 60 * 1000L;
+            case 'd':
+                return amount * 24 * 60 * 60 * 1000L;
+            case 'w':
+                return amount * 7 * 24 * 60 * 60 * 1000L;
+            default:
+                throw new IllegalArgumentException("Backfill does not support " + id + " candles");
+        }
+    }
+
+    /**
+     * Open times from start (inclusive) to end (exclusive) and, once fetched for a repair, its candles.
+     */
+    private static class Window {
+        private final long start;
+        private final long end;
+        private List<Candlestick> candles;
+
+        private Window(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
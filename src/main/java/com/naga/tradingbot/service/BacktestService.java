@@ -0,0 +1,209 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.backtest.BacktestData;
+import com.naga.tradingbot.backtest.BacktestEngine;
+import com.naga.tradingbot.backtest.BacktestResult;
+import com.naga.tradingbot.backtest.ParameterSweep;
+import com.naga.tradingbot.backtest.StrategyParameters;
+import com.naga.tradingbot.backtest.SweepRanges;
+import com.naga.tradingbot.model.data.CandleSeries;
+import com.naga.tradingbot.model.data.SymbolMetadata;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the strategy offline over the hourly candles in the {@link CandleStore}, once with the live
+ * values or as a parameter sweep.
+ */
+@Service
+public class BacktestService {
+
+    private static final Logger logger = Logger.getLogger(BacktestService.class);
+
+    @Autowired
+    private CandleStore candleStore;
+
+    @Autowired
+    private BotEngine botEngine;
+
+    @Autowired
+    private SymbolMetadataCache symbolMetadataCache;
+
+    @Value("${trading.bot.shortTermMA}")
+    private Integer shortTermMA;
+
+    @Value("${trading.bot.longTermMA}")
+    private Integer longTermMA;
+
+    /**
+     * Comma separated symbols to replay; all stored symbols if empty.
+     */
+    @Value("${trading.bot.backtest.symbols:}")
+    private String symbols;
+
+    @Value("${trading.bot.backtest.initialBalance:10000}")
+    private double initialBalance;
+
+    @Value("${trading.bot.backtest.feeRate:0.001}")
+    private double feeRate;
+
+    /**
+     * grid tries every combination of the sweep values, random draws within their ranges.
+     */
+    @Value("${trading.bot.sweep.search:grid}")
+    private String sweepSearch;
+
+    @Value("${trading.bot.sweep.samples:1000}")
+    private int sweepSamples;
+
+    @Value("${trading.bot.sweep.seed:42}")
+    private long sweepSeed;
+
+    /**
+     * Worker threads of the sweep; 0 uses every core.
+     */
+    @Value("${trading.bot.sweep.threads:0}")
+    private int sweepThreads;
+
+    @Value("${trading.bot.sweep.top:25}")
+    private int sweepTop;
+
+    @Value("${trading.bot.sweep.shortTermMA:10,20,30,50}")
+    private String sweepShortTermMA;
+
+    @Value("${trading.bot.sweep.longTermMA:100,150,200}")
+    private String sweepLongTermMA;
+
+    @Value("${trading.bot.sweep.sellPriceMultiplier:1.01,1.018,1.03,1.05}")
+    private String sweepSellPriceMultiplier;
+
+    @Value("${trading.bot.sweep.buyBackPercentage:0.97,0.98,0.99}")
+    private String sweepBuyBackPercentage;
+
+    @Value("${trading.bot.sweep.allocatePercent:2.5,5}")
+    private String sweepAllocatePercent;
+
+    @Value("${trading.bot.sweep.stopLossRatio:0.8,0.9}")
+    private String sweepStopLossRatio;
+
+    /**
+     * Replays the configured symbols with the live strategy values and logs the report.
+     */
+    public BacktestResult run() {
+        BacktestResult result = new BacktestEngine(loadData()).run(getDefaultParameters());
+        logger.info(result.toReport(20));
+        return result;
+    }
+
+    /**
+     * Runs the configured parameter sweep over one shared copy of the candles and logs the best
+     * combinations.
+     */
+    public List<BacktestResult> sweep() {
+        SweepRanges ranges = new SweepRanges();
+        ranges.setShortTermMA(parseInts(sweepShortTermMA));
+        ranges.setLongTermMA(parseInts(sweepLongTermMA));
+        ranges.setSellPriceMultiplier(parseDoubles(sweepSellPriceMultiplier));
+        ranges.setBuyBackPercentage(parseDoubles(sweepBuyBackPercentage));
+        ranges.setAllocatePercent(parseDoubles(sweepAllocatePercent));
+        ranges.setStopLossRatio(parseDoubles(sweepStopLossRatio));
+        List<StrategyParameters> combinations = "random".equalsIgnoreCase(sweepSearch)
+                ? ParameterSweep.random(getDefaultParameters(), ranges, sweepSamples, sweepSeed)
+                : ParameterSweep.grid(getDefaultParameters(), ranges);
+        BacktestEngine engine = new BacktestEngine(loadData());
+        ForkJoinPool pool = sweepThreads > 0 ? new ForkJoinPool(sweepThreads) : new ForkJoinPool();
+        try {
+            logger.info("Sweeping " + combinations.size() + " combinations on " + pool.getParallelism() + " worker(s)");
+            List<BacktestResult> ranked = new ParameterSweep(engine, pool).run(combinations);
+            logger.info("Best combinations\n" + ParameterSweep.toTable(ranked, sweepTop));
+            return ranked;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Strategy values the live bot trades with.
+     */
+    public StrategyParameters getDefaultParameters() {
+        StrategyParameters parameters = StrategyParameters.fromDays(shortTermMA, longTermMA);
+        parameters.setInitialBalance(initialBalance);
+        parameters.setFeeRate(feeRate);
+        return parameters;
+    }
+
+    /**
+     * Loads the stored candles and trading rules of the configured symbols.
+     */
+    public BacktestData loadData() {
+        long start = System.currentTimeMillis();
+        List<String> tickers = StringUtils.isEmpty(symbols) ? candleStore.listTickers(CandlestickInterval.HOURLY)
+                : Arrays.asList(StringUtils.commaDelimitedListToStringArray(symbols.replace(" ", "")));
+        List<CandleSeries> series = new ArrayList<>();
+        List<SymbolMetadata> rules = new ArrayList<>();
+        int fallbackRuleCount = 0;
+        for (String ticker : tickers) {
+            CandleSeries candleSeries = candleStore.loadSeries(ticker, CandlestickInterval.HOURLY, 0);
+            if (candleSeries.size() == 0) {
+                logger.info("No stored candles for " + ticker + ". Skipping it");
+                continue;
+            }
+            series.add(candleSeries);
+            SymbolMetadata symbolRules = getRules(ticker);
+            if (symbolRules == null) {
+                fallbackRuleCount++;
+                symbolRules = new SymbolMetadata(ticker, ticker.replace("USDT", ""), "USDT",
+                        "0.00000001", "0.00000001", "0.00000001", "0.00000001", "10");
+            }
+            rules.add(symbolRules);
+        }
+        BacktestData data = new BacktestData(series, rules, fallbackRuleCount);
+        logger.info("Loaded " + data.getCandleCount() + " candles of " + data.getSymbolCount() + " symbols in "
+                + (System.currentTimeMillis() - start) + "ms");
+        if (fallbackRuleCount > 0) {
+            logger.warn(fallbackRuleCount + " of " + data.getSymbolCount()
+                    + " symbols have no exchangeInfo filters. Their orders are not checked against the real rules");
+        }
+        return data;
+    }
+
+    private static int[] parseInts(String values) {
+        return Arrays.stream(StringUtils.commaDelimitedListToStringArray(values.replace(" ", "")))
+                .mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static double[] parseDoubles(String values) {
+        return Arrays.stream(StringUtils.commaDelimitedListToStringArray(values.replace(" ", "")))
+                .mapToDouble(Double::parseDouble).toArray();
+    }
+
+    /**
+     * Exchange rules of the symbol, or null with a warning when exchangeInfo cannot be reached or does
+     * not list it.
+     */
+    private SymbolMetadata getRules(String ticker) {
+        if (botEngine.getClient() == null) {
+            logger.warn("No Binance client to load exchangeInfo. " + ticker + " uses placeholder rules");
+            return null;
+        }
+        try {
+            SymbolMetadata metadata = symbolMetadataCache.get(ticker);
+            if (metadata == null) {
+                logger.warn("exchangeInfo does not list " + ticker + ". It uses placeholder rules");
+            }
+            return metadata;
+        } catch (Exception e) {
+            logger.warn("Unable to load exchangeInfo for " + ticker + ". It uses placeholder rules: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.BinanceApiCallback;
+import com.binance.api.client.BinanceApiClientFactory;
+import com.binance.api.client.BinanceApiWebSocketClient;
+import com.binance.api.client.domain.event.CandlestickEvent;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Kline streams from the Binance WebSocket API. Symbols are split over several connections and a
+ * dropped connection is re-opened after a short delay.
+ */
+public class BinanceCandleStreamSource implements CandleStreamSource {
+
+    private static final Logger logger = Logger.getLogger(BinanceCandleStreamSource.class);
+
+    private static final int SYMBOLS_PER_CONNECTION = 100;
+
+    private static final long RECONNECT_DELAY_SECONDS = 30;
+
+    private final BinanceApiWebSocketClient webSocketClient = BinanceApiClientFactory.newInstance().newWebSocketClient();
+
+    private final ScheduledExecutorService reconnectExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kline-stream-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public Closeable subscribe(List<String> symbols, CandlestickInterval interval, Consumer<CandlestickEvent> listener) {
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < symbols.size(); i += SYMBOLS_PER_CONNECTION) {
+            Connection connection = new Connection(symbols.subList(i, Math.min(i + SYMBOLS_PER_CONNECTION, symbols.size())),
+                    interval, listener);
+            connection.open();
+            connections.add(connection);
+        }
+        return () -> {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+            reconnectExecutor.shutdownNow();
+        };
+    }
+
+    private class Connection implements BinanceApiCallback<CandlestickEvent> {
+        private final String streams;
+        private final CandlestickInterval interval;
+        private final Consumer<CandlestickEvent> listener;
+        private volatile Closeable socket;
+        private volatile boolean closed;
+
+        private Connection(List<String> symbols, CandlestickInterval interval, Consumer<CandlestickEvent> listener) {
+            this.streams = String.join(",", symbols).toLowerCase();
+            this.interval = interval;
+            this.listener = listener;
+        }
+
+        private synchronized void open() {
+            if (!closed) {
+                socket = webSocketClient.onCandlestickEvent(streams, interval, this);
+            }
+        }
+
+        @Override
+        public void onResponse(CandlestickEvent event) {
+            listener.accept(event);
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            if (closed) {
+                return;
+            }
+            logger.error("Kline stream failed, reconnecting in " + RECONNECT_DELAY_SECONDS + "s", cause);
+            reconnectExecutor.schedule(this::open, RECONNECT_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+
+        private synchronized void close() throws IOException {
+            closed = true;
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+}
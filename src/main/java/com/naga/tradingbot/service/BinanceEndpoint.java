@@ -0,0 +1,80 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.account.request.OrderRequest;
+
+import java.lang.reflect.Method;
+
+/**
+ * Binance REST endpoints used by the bot with their request weight. Orders additionally count
+ * against the order rate limit.
+ */
+public enum BinanceEndpoint {
+    KLINES(1),
+    EXCHANGE_INFO(10),
+    ACCOUNT(10),
+    OPEN_ORDERS(3),
+    ALL_OPEN_ORDERS(40),
+    ORDER(1),
+    CANCEL_ORDER(1),
+    ORDER_STATUS(2),
+    MY_TRADES(10),
+    TICKER_24HR(1),
+    ALL_TICKERS_24HR(40),
+    PRICE(1),
+    ALL_PRICES(2),
+    USER_DATA_STREAM(1),
+    OTHER(1);
+
+    private final int weight;
+
+    BinanceEndpoint(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public boolean isOrder() {
+        return this == ORDER;
+    }
+
+    /**
+     * Maps a {@link com.binance.api.client.BinanceApiRestClient} method call to its endpoint.
+     */
+    public static BinanceEndpoint forMethod(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getCandlestickBars":
+                return KLINES;
+            case "getExchangeInfo":
+                return EXCHANGE_INFO;
+            case "getAccount":
+                return ACCOUNT;
+            case "getOpenOrders":
+                OrderRequest orderRequest = args == null ? null : (OrderRequest) args[0];
+                return orderRequest == null || orderRequest.getSymbol() == null ? ALL_OPEN_ORDERS : OPEN_ORDERS;
+            case "newOrder":
+                return ORDER;
+            case "cancelOrder":
+                return CANCEL_ORDER;
+            case "getOrderStatus":
+                return ORDER_STATUS;
+            case "getMyTrades":
+                return MY_TRADES;
+            case "get24HrPriceStatistics":
+                return TICKER_24HR;
+            case "getAll24HrPriceStatistics":
+                return ALL_TICKERS_24HR;
+            case "getPrice":
+                return PRICE;
+            case "getAllPrices":
+                return ALL_PRICES;
+            case "startUserDataStream":
+            case "keepAliveUserDataStream":
+            case "closeUserDataStream":
+                return USER_DATA_STREAM;
+            default:
+                return OTHER;
+        }
+    }
+}
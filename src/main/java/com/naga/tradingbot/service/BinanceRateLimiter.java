@@ -0,0 +1,159 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.BinanceApiRestClient;
+import com.binance.api.client.exception.BinanceApiException;
+import com.naga.tradingbot.metrics.MetricsRegistry;
+import com.naga.tradingbot.utils.TokenBucket;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+/**
+ * Central limiter for all Binance REST calls. Request weight and orders are each tracked in a token
+ * bucket sized to the exchange limits, so calls only block when the budget is actually used up.
+ */
+@Service
+public class BinanceRateLimiter {
+
+    private static final Logger logger = Logger.getLogger(BinanceRateLimiter.class);
+
+    /**
+     * Binance error code for "Too many requests".
+     */
+    private static final int TOO_MANY_REQUESTS = -1003;
+
+    @Value("${trading.bot.rateLimit.weightPerMinute:1200}")
+    private int weightPerMinute;
+
+    @Value("${trading.bot.rateLimit.ordersPerTenSeconds:50}")
+    private int ordersPerTenSeconds;
+
+    /**
+     * Share of the exchange limits the bot allows itself to use.
+     */
+    @Value("${trading.bot.rateLimit.safetyFactor:0.9}")
+    private double safetyFactor;
+
+    /**
+     * How long all calls are held back after the exchange rejected one for exceeding its limits.
+     */
+    @Value("${trading.bot.rateLimit.backOffMillis:60000}")
+    private long backOffMillis;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    private TokenBucket weightBucket;
+
+    private TokenBucket orderBucket;
+
+    private volatile long pausedUntil;
+
+    @PostConstruct
+    public void init() {
+        weightBucket = new TokenBucket(weightPerMinute * safetyFactor, 60000);
+        orderBucket = new TokenBucket(ordersPerTenSeconds * safetyFactor, 10000);
+        metricsRegistry.gauge("binance.weight.used", this::getUsedWeight);
+        metricsRegistry.gauge("binance.weight.limit", this::getWeightLimit);
+    }
+
+    /**
+     * Blocks until the request weight (and order budget for orders) of the endpoint is available.
+     */
+    public void acquire(BinanceEndpoint endpoint) throws InterruptedException {
+        long pause = pausedUntil - System.currentTimeMillis();
+        if (pause > 0) {
+            logger.info("Binance rate limit back off, waiting " + pause + "ms");
+            Thread.sleep(pause);
+        }
+        long waited = weightBucket.acquire(endpoint.getWeight());
+        if (endpoint.isOrder()) {
+            waited += orderBucket.acquire(1);
+        }
+        metricsRegistry.add("binance.weight", endpoint.getWeight());
+        if (waited > 0) {
+            metricsRegistry.timer("binance.rateLimit.wait").record(waited * 1000000);
+        }
+        if (waited > 1000) {
+            logger.debug("Waited " + waited + "ms for request weight of " + endpoint);
+        }
+    }
+
+    /**
+     * Holds back all calls for the configured back off and empties the buckets. Used when the exchange
+     * answered with a rate limit error.
+     */
+    public void backOff() {
+        pausedUntil = System.currentTimeMillis() + backOffMillis;
+        weightBucket.drain();
+        orderBucket.drain();
+    }
+
+    /**
+     * Request weight used within the current one minute refill period.
+     */
+    public int getUsedWeight() {
+        return (int) Math.round(weightBucket.getCapacity() - weightBucket.available());
+    }
+
+    /**
+     * Request weight per minute the bot allows itself to use.
+     */
+    public int getWeightLimit() {
+        return (int) weightBucket.getCapacity();
+    }
+
+    /**
+     * Returns a client that passes every call through this limiter before delegating to the given one.
+     */
+    public BinanceApiRestClient wrap(BinanceApiRestClient delegate) {
+        return (BinanceApiRestClient) Proxy.newProxyInstance(BinanceApiRestClient.class.getClassLoader(),
+                new Class<?>[]{BinanceApiRestClient.class},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(delegate, args);
+                    }
+                    BinanceEndpoint endpoint = BinanceEndpoint.forMethod(method, args);
+                    try {
+                        acquire(endpoint);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new BinanceApiException("Interrupted while waiting for request weight", e);
+                    }
+                    String metric = "binance." + endpoint.name();
+                    long start = System.nanoTime();
+                    try {
+                        return method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        Throwable cause = e.getCause();
+                        metricsRegistry.increment(metric + ".errors");
+                        if (isRateLimitError(cause)) {
+                            logger.error("Binance rate limit hit on " + method.getName() + ". Backing off for "
+                                    + backOffMillis + "ms");
+                            backOff();
+                        }
+                        throw cause;
+                    } finally {
+                        metricsRegistry.timer(metric).record(System.nanoTime() - start);
+                    }
+                });
+    }
+
+    private static boolean isRateLimitError(Throwable throwable) {
+        if (!(throwable instanceof BinanceApiException)) {
+            return false;
+        }
+        BinanceApiException exception = (BinanceApiException) throwable;
+        if (exception.getError() != null && exception.getError().getCode() == TOO_MANY_REQUESTS) {
+            return true;
+        }
+        String message = exception.getMessage();
+        return message != null && (message.contains("429") || message.contains("418")
+                || message.contains("Too many requests"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.BinanceApiCallback;
+import com.binance.api.client.BinanceApiClientFactory;
+import com.binance.api.client.BinanceApiRestClient;
+import com.binance.api.client.BinanceApiWebSocketClient;
+import com.binance.api.client.domain.event.OrderTradeUpdateEvent;
+import com.binance.api.client.domain.event.UserDataUpdateEvent;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order updates from the Binance user data stream. The listen key is kept alive every 30 minutes and
+ * the stream is re-opened after a failure.
+ */
+public class BinanceUserDataOrderEventSource implements OrderEventSource {
+
+    private static final Logger logger = Logger.getLogger(BinanceUserDataOrderEventSource.class);
+
+    private static final long KEEP_ALIVE_MINUTES = 30;
+
+    private static final long RECONNECT_DELAY_SECONDS = 30;
+
+    private final BinanceApiRestClient client;
+
+    private final BinanceApiWebSocketClient webSocketClient = BinanceApiClientFactory.newInstance().newWebSocketClient();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-data-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile String listenKey;
+
+    private volatile Closeable socket;
+
+    private volatile boolean connected;
+
+    private volatile boolean closed;
+
+    public BinanceUserDataOrderEventSource(BinanceApiRestClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public Closeable subscribe(Listener listener) {
+        scheduler.execute(() -> open(listener));
+        scheduler.scheduleAtFixedRate(this::keepAlive, KEEP_ALIVE_MINUTES, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES);
+        return () -> {
+            closed = true;
+            connected = false;
+            scheduler.shutdownNow();
+            if (socket != null) {
+                socket.close();
+            }
+            if (listenKey != null) {
+                client.closeUserDataStream(listenKey);
+            }
+        };
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void open(Listener listener) {
+        if (closed) {
+            return;
+        }
+        try {
+            listenKey = client.startUserDataStream();
+            socket = webSocketClient.onUserDataUpdateEvent(listenKey, new BinanceApiCallback<UserDataUpdateEvent>() {
+                @Override
+                public void onResponse(UserDataUpdateEvent event) {
+                    if (event.getEventType() == UserDataUpdateEvent.UserDataUpdateEventType.ORDER_TRADE_UPDATE) {
+                        OrderTradeUpdateEvent update = event.getOrderTradeUpdateEvent();
+                        listener.onOrderUpdate(update.getSymbol(), update.getOrderId(), update.getOrderStatus());
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable cause) {
+                    reconnect(listener, cause);
+                }
+            });
+            connected = true;
+        } catch (Exception e) {
+            reconnect(listener, e);
+        }
+    }
+
+    private void reconnect(Listener listener, Throwable cause) {
+        connected = false;
+        if (closed) {
+            return;
+        }
+        logger.error("User data stream failed, reconnecting in " + RECONNECT_DELAY_SECONDS + "s", cause);
+        scheduler.schedule(() -> open(listener), RECONNECT_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void keepAlive() {
+        try {
+            if (listenKey != null) {
+                client.keepAliveUserDataStream(listenKey);
+            }
+        } catch (Exception e) {
+            logger.error("Unable to keep the user data stream alive", e);
+        }
+    }
+}
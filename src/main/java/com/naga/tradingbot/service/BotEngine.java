@@ -7,29 +7,25 @@ import com.binance.api.client.domain.TimeInForce;
 import com.binance.api.client.domain.account.*;
 import com.binance.api.client.domain.account.request.CancelOrderRequest;
 import com.binance.api.client.domain.account.request.OrderRequest;
-import com.binance.api.client.domain.general.FilterType;
-import com.binance.api.client.domain.general.SymbolFilter;
 import com.binance.api.client.domain.market.Candlestick;
 import com.binance.api.client.domain.market.CandlestickInterval;
 import com.binance.api.client.domain.market.TickerStatistics;
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.model.data.IndicatorState;
 import com.naga.tradingbot.model.data.PredictionEngine;
+import com.naga.tradingbot.model.data.SymbolMetadata;
 import com.naga.tradingbot.utils.CalcUtils;
+import com.naga.tradingbot.utils.FixedDecimal;
 import com.naga.tradingbot.utils.LoggerUtil;
-import org.jfree.chart.JFreeChart;
-import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
-import org.jfree.data.time.TimeSeriesDataItem;
+import com.naga.tradingbot.utils.TelegramNotifier;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -44,6 +40,34 @@ public class BotEngine {
     @Autowired
     private MovingAverageChartHelper movingAverageChartHelper;
 
+    @Autowired
+    private CandleStore candleStore;
+
+    @Autowired
+    private MovingAverageEngine movingAverageEngine;
+
+    @Autowired
+    private BinanceRateLimiter binanceRateLimiter;
+
+    @Autowired
+    private SymbolMetadataCache symbolMetadataCache;
+
+    @Autowired
+    private PriceSnapshotService priceSnapshotService;
+
+    @Autowired
+    private AccountSnapshotService accountSnapshotService;
+
+    @Autowired
+    private OrderTracker orderTracker;
+
+    private static final int KLINE_PAGE_LIMIT = 1000;
+
+    /**
+     * Free balances up to 0.0001 coin are dust and not worth a sell order.
+     */
+    private static final long MIN_SELL_UNITS = FixedDecimal.fromDouble(0.0001);
+
     @Value("${developmentMode}")
     public boolean DEVELOPMENT_MODE;
 
@@ -104,7 +128,7 @@ public class BotEngine {
      */
     public String getBalances() {
         StringBuilder response = new StringBuilder();
-        Account account = client.getAccount();
+        Account account = accountSnapshotService.get();
         List<AssetBalance> balances = account.getBalances();
         for (AssetBalance balance : balances) {
             Double amount = Double.valueOf(balance.getFree()) + Double.valueOf(balance.getLocked());
@@ -129,7 +153,7 @@ public class BotEngine {
         loggerUtil.debug("Setting Binance credentials");
         BinanceApiClientFactory factory =
                 BinanceApiClientFactory.newInstance(binanceAPIKey, binanceAPISecret);
-        client = factory.newRestClient();
+        client = binanceRateLimiter.wrap(factory.newRestClient());
     }
 
     /**
@@ -138,7 +162,7 @@ public class BotEngine {
      * @return Balance in BTC
      */
     public String getCurrentBalanceInBTC() {
-        Account account = client.getAccount();
+        Account account = accountSnapshotService.get();
         // Pull the latest account balance info from Binance
         List<AssetBalance> balances = account.getBalances();
         Double estimatedBalance = 0.0;
@@ -148,7 +172,7 @@ public class BotEngine {
                 if (balance.getAsset().equals("BTC")) {
                     estimatedBalance += amount;
                 } else {
-                    estimatedBalance += valueInBTC(amount, balance.getAsset());
+                    estimatedBalance += priceSnapshotService.valueInBTC(balance.getAsset(), amount);
                 }
             }
         }
@@ -162,7 +186,7 @@ public class BotEngine {
      * @return Balance in BTC
      */
     public Double getTotalBalanceInUSDT() {
-        Account account = client.getAccount();
+        Account account = accountSnapshotService.get();
         // Pull the latest account balance info from Binance
         List<AssetBalance> balances = account.getBalances();
         Double estimatedBalance = 0.0;
@@ -172,7 +196,7 @@ public class BotEngine {
                 if (balance.getAsset().equals("USDT")) {
                     estimatedBalance += amount;
                 } else {
-                    estimatedBalance += valueInUSDT(amount, balance.getAsset());
+                    estimatedBalance += priceSnapshotService.valueInUSDT(balance.getAsset(), amount);
                 }
             }
         }
@@ -186,64 +210,64 @@ public class BotEngine {
      * @return Balance in BTC
      */
     public Double getCurrentUSDTBalanceForATicker(String ticker) {
-        Account account = client.getAccount();
+        Account account = accountSnapshotService.get();
         AssetBalance balance = account.getAssetBalance(ticker);
         Double estimatedBalance = Double.valueOf(balance.getFree()) + Double.valueOf(balance.getLocked());
-        TickerStatistics tickerStatistics = client.get24HrPriceStatistics(ticker + "USDT");
-        return estimatedBalance * Double.valueOf(tickerStatistics.getLastPrice());
+        return priceSnapshotService.valueInUSDT(ticker, estimatedBalance);
     }
 
     /**
-     * Estimate the value of a given amount/ticker in BTC
+     * Retrieves data from the ticker data pulled from Binance. This data is then used later for
+     * predicting a selling price. The history is read from the {@link CandleStore}; only the candles
+     * that closed since the last stored close time (plus the live candle) are fetched.
      *
-     * @param amount The amount of an asset
-     * @param ticker The ticker of the asset to estimate
+     * @return the last 12 months of candles with the live candle last, empty if the fetch failed
      */
-    private Double valueInBTC(Double amount, String ticker) {
-        if (ticker.equals("USDT")) {
-            TickerStatistics tickerStatistics = client.get24HrPriceStatistics(ticker);
-            return amount / Double.valueOf(tickerStatistics.getLastPrice());
-        } else {
-            return Double.valueOf(client.get24HrPriceStatistics(ticker + "BTC").getLastPrice()) * amount;
+    public CandleView gatherMAData(String ticker) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MONTH, -12);
+        long windowStart = calendar.getTimeInMillis();
+        Candlestick liveCandlestick;
+        try {
+            liveCandlestick = fetchNewCandles(ticker, windowStart);
+        } catch (Exception e) {
+            loggerUtil.error("Unable to fetch candles of " + ticker, e);
+            // Keep what was fetched so far but do not decide on stale data
+            return CandleView.empty(ticker);
         }
+        CandleView candles = candleStore.view(ticker, CandlestickInterval.HOURLY, windowStart);
+        return liveCandlestick == null ? candles : candles.withLive(liveCandlestick);
     }
 
     /**
-     * Estimate the value of a given amount/ticker in BTC
+     * Appends the candles that closed after the last stored close time to the {@link CandleStore},
+     * one page of at most KLINE_PAGE_LIMIT candles at a time.
      *
-     * @param amount The amount of an asset
-     * @param ticker The ticker of the asset to estimate
+     * @param windowStart open time to fetch from if nothing newer is stored
+     * @return the live candle, null if Binance did not return one
      */
-    private Double valueInUSDT(Double amount, String ticker) {
-        TickerStatistics tickerStatistics = client.get24HrPriceStatistics(ticker + "USDT");
-        return amount * Double.valueOf(tickerStatistics.getLastPrice());
-    }
-
-    /**
-     * Retrieves data from the ticker data pulled from Binance. This data is then used later for
-     * predicting a selling price.
-     */
-    public List<Candlestick> gatherMAData(String ticker) {
-        List<Candlestick> candlesticks = new LinkedList<>();
-        Calendar calendar = null;
-        try {
-            // Make the GET call to Binance
-            for (int i = 12; i > 0; i--) {
-                calendar = Calendar.getInstance();
-                calendar.add(Calendar.MONTH, -i);
-                Long startTime = calendar.getTimeInMillis();
-                calendar = Calendar.getInstance();
-                if (i > 2)
-                    calendar.add(Calendar.MONTH, -(i - 1));
-                Long endTime = calendar.getTimeInMillis();
-                candlesticks.addAll(client.getCandlestickBars(ticker, CandlestickInterval.HOURLY, 1000, startTime, endTime));
-                new CalcUtils().sleeper(500);
+    public Candlestick fetchNewCandles(String ticker, long windowStart) {
+        long now = System.currentTimeMillis();
+        long lastCloseTime = candleStore.getLastCloseTime(ticker, CandlestickInterval.HOURLY);
+        long startTime = lastCloseTime < windowStart ? windowStart : lastCloseTime + 1;
+        Candlestick liveCandlestick = null;
+        while (startTime < now) {
+            List<Candlestick> page = client.getCandlestickBars(ticker, CandlestickInterval.HOURLY, KLINE_PAGE_LIMIT, startTime, now);
+            List<Candlestick> closedCandlesticks = new ArrayList<>(page.size());
+            for (Candlestick candlestick : page) {
+                if (candlestick.getCloseTime() < now) {
+                    closedCandlesticks.add(candlestick);
+                } else {
+                    liveCandlestick = candlestick;
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            new CalcUtils().sleeper(120000);
+            candleStore.append(ticker, CandlestickInterval.HOURLY, closedCandlesticks);
+            if (page.size() < KLINE_PAGE_LIMIT) {
+                break;
+            }
+            startTime = page.get(page.size() - 1).getCloseTime() + 1;
         }
-        return candlesticks;
+        return liveCandlestick;
     }
 
 
@@ -253,8 +277,8 @@ public class BotEngine {
      * incremental amount of money.
      */
     public void tradeBasedOnSignal(String ticker, PredictionEngine predictionEngine) {
-        Double lastTargetPrice = 1000000.0;
-        Double buyBackPrice = 0.0;
+        double lastTargetPrice = 1000000.0;
+        double buyBackPrice = 0.0;
         boolean marketBuy = false;
         String message = "";
         if (DEVELOPMENT_MODE) {
@@ -277,10 +301,10 @@ public class BotEngine {
             loggerUtil.debug("Number of open " + ticker + " orders: " + openOrders.size());
             Order openOrder = openOrders.get(0);
             if (openOrder != null) {
-                Double currentMargin = predictionEngine.getCurrentPrice() / Double.valueOf(openOrder.getPrice());
-                Double currentMarginPercent = CalcUtils.roundTo((currentMargin - 1) * 100, 2);
-                Double buyBackDifference =
-                        CalcUtils.roundTo((predictionEngine.getCurrentPrice() - Double.valueOf(openOrder.getPrice())), 2);
+                double openOrderPrice = Double.parseDouble(openOrder.getPrice());
+                double currentMargin = predictionEngine.getCurrentPrice() / openOrderPrice;
+                double currentMarginPercent = CalcUtils.roundTo((currentMargin - 1) * 100, 2);
+                double buyBackDifference = CalcUtils.roundTo(predictionEngine.getCurrentPrice() - openOrderPrice, 2);
                 loggerUtil.debug(
                         "Current buy back: " + currentMarginPercent + "% ($" + buyBackDifference + ")");
                 if ((currentMarginPercent > 10
@@ -309,7 +333,8 @@ public class BotEngine {
                     performSellAndBuyBack(ticker, predictionEngine, buyBackPrice, lastTargetPrice);
                 } catch (Exception e) {
                     loggerUtil.error("Exception occurred during Sell And Buy Back", e);
-                    loggerUtil.notify(ticker, "Error at performSellAndBuyBack method. error message - " + e.getMessage());
+                    loggerUtil.notify(ticker, "Error at performSellAndBuyBack method. error message - " + e.getMessage(),
+                            TelegramNotifier.Priority.HIGH);
                 }
             } else {
                 reportDevMode();
@@ -329,38 +354,31 @@ public class BotEngine {
      * @param buyPrice         Price to buy at
      * @param lastTargetPrice
      */
-    private void performSellAndBuyBack(String ticker, PredictionEngine predictionEngine, Double buyPrice, Double lastTargetPrice) throws Exception {
-        Double sellPrice = predictionEngine.getCurrentPrice();
+    private void performSellAndBuyBack(String ticker, PredictionEngine predictionEngine, double buyPrice, double lastTargetPrice) throws Exception {
+        double sellPrice = predictionEngine.getCurrentPrice();
         String message = "";
         String cryptoCoin = ticker.replace("USDT", "");
         boolean sellIt = Boolean.FALSE;
-        Account account = client.getAccount();
-        // Find out how much free asset there is to trade
-        Double freeCoinFloored =
-                CalcUtils.floorTo(Double.valueOf(account.getAssetBalance(cryptoCoin).getFree()), String.valueOf(sellPrice.intValue()).length() - 1);
+        SymbolMetadata symbolMetadata = symbolMetadataCache.get(ticker);
+        if (symbolMetadata == null) {
+            throw new Exception("No exchange metadata for " + ticker);
+        }
+        Account account = accountSnapshotService.get();
+        // Find out how much free asset there is to trade, floored to the symbol's LOT_SIZE step
+        AssetBalance balance = account.getAssetBalance(cryptoCoin);
+        long freeCoinUnits = FixedDecimal.parse(balance.getFree());
+        long sellQuantity = symbolMetadata.floorQuantity(freeCoinUnits);
+        long sellPriceUnits = symbolMetadata.roundPrice(FixedDecimal.fromDouble(sellPrice));
         /**
          * Don't sell for loss condition starts
          */
         //TODO: refactor this as method
-        AssetBalance balance = account.getAssetBalance(cryptoCoin);
-        Double sellableAmount = Double.valueOf(balance.getFree());
         boolean stopLossSignal = false;
         boolean sellForProfitSignal = false;
-        List<SymbolFilter> symbolFilters = client.getExchangeInfo().getSymbolInfo(ticker).getFilters();
-        Double minPrice = Double.valueOf(symbolFilters.stream().filter(i -> i.getFilterType().name().equals(FilterType.PRICE_FILTER.name()))
-                .findFirst().get().getMinPrice());
-        int floorDecimal = 0;
-        Double temp = minPrice;
-        while (temp < 1) {
-            temp *= 10;
-            floorDecimal++;
-        }
-        DecimalFormat df = new DecimalFormat("#.#");
-        df.setMaximumFractionDigits(floorDecimal);
-        if (sellableAmount > 0.0) {
+        if (freeCoinUnits > 0) {
             List<Trade> trades = client.getMyTrades(ticker, 1);
             if (trades != null && !trades.isEmpty() && trades.get(0).isBuyer()) {
-                Double lastBuyPrice = Double.valueOf(trades.get(0).getPrice());
+                double lastBuyPrice = Double.parseDouble(trades.get(0).getPrice());
                 message = cryptoCoin + " Last Buy Price : " + lastBuyPrice;
                 loggerUtil.info(message);
                 //loggerUtil.notify(ticker, message);
@@ -386,11 +404,14 @@ public class BotEngine {
         /**
          * Avoid sell for loss condition ends
          */
-        if (freeCoinFloored > 0.0001 && sellIt) {
+        if (sellQuantity > MIN_SELL_UNITS && sellIt
+                && accountSnapshotService.tryReserve(cryptoCoin, FixedDecimal.toDouble(sellQuantity))) {
             //TODO: Refactor to limitSell method
-            loggerUtil.info("Amount of " + cryptoCoin + " to trade: " + freeCoinFloored);
+            String quantity = symbolMetadata.formatQuantity(sellQuantity);
+            String price = symbolMetadata.formatPrice(sellPriceUnits);
+            loggerUtil.info("Amount of " + cryptoCoin + " to trade: " + quantity);
             try {
-                message = "Executing sell of: " + freeCoinFloored + " " + cryptoCoin + " @ $" + df.format(sellPrice);
+                message = "Executing sell of: " + quantity + " " + cryptoCoin + " @ $" + price;
                 loggerUtil.info(message);
                 loggerUtil.notify(ticker, message);
                 // Submit the binance sell
@@ -399,24 +420,17 @@ public class BotEngine {
                                 limitSell(
                                         ticker,
                                         TimeInForce.GTC,
-                                        freeCoinFloored.toString(),
-                                        df.format(sellPrice)));
+                                        quantity,
+                                        price));
                 loggerUtil.info("Limit Sell submitted: " + performSell.getTransactTime());
                 loggerUtil.notify(ticker, "Limit Sell submitted");
-                new CalcUtils().sleeper(3000);
-                // Wait and make sure that the trade executed. If not, keep waiting
-                List<Order> openOrders = client.getOpenOrders(new OrderRequest(ticker));
-                openOrders.removeIf(i -> i.getSide().name().equals(OrderSide.BUY.name()));
-                while (!openOrders.isEmpty()) {
-                    loggerUtil.info("Orders for " + ticker + " are not empty, waiting 3 seconds...");
-                    new CalcUtils().sleeper(3000);
-                    openOrders = client.getOpenOrders(new OrderRequest(ticker));
-                    openOrders.removeIf(i -> i.getSide().name().equals(OrderSide.BUY.name()));
-                }
-                loggerUtil.info("Sell Trade executed successfully");
-                loggerUtil.notify(ticker, "Sell Trade executed successfully");
-                new CalcUtils().sleeper(3000);
+                // Don't wait for the fill, the buy back is evaluated once the order tracker sees it
+                orderTracker.track(ticker, performSell.getOrderId(), OrderSide.SELL, stopLossSignal,
+                        getSellFilledCallback(ticker, stopLossSignal));
+                return;
             } catch (Exception e) {
+                // Drop the reservation, the order may or may not have been placed
+                accountSnapshotService.invalidate();
                 loggerUtil.error("There was an exception thrown during the sell?: " + e.getMessage());
                 if (!e.getMessage().contains("MIN_NOTIONAL")) {
                     throw new Exception(e);
@@ -425,14 +439,61 @@ public class BotEngine {
                 }
             }
         } else {
-            message = "Cannot sell " + freeCoinFloored + cryptoCoin;
+            message = "Cannot sell " + FixedDecimal.toDouble(sellQuantity) + cryptoCoin;
             loggerUtil.info(message);
             //loggerUtil.notify(ticker, message);
         }
+        performBuyBack(ticker, predictionEngine, buyPrice, stopLossSignal, symbolMetadata);
+    }
+
+    /**
+     * The reaction to the fill of a limit sell: a buy back. The fill may come hours after the sell, or
+     * after a restart, so the exchange metadata, the candles and the prediction are read again when it
+     * happens instead of reusing the ones the sell was placed with. Runs under the symbol lock.
+     *
+     * @param stopLoss true if the sell was a stop loss, which is not bought back
+     */
+    public Runnable getSellFilledCallback(String ticker, boolean stopLoss) {
+        return () -> {
+            loggerUtil.info("Sell Trade executed successfully");
+            loggerUtil.notify(ticker, "Sell Trade executed successfully", TelegramNotifier.Priority.HIGH);
+            try {
+                SymbolMetadata symbolMetadata = symbolMetadataCache.get(ticker);
+                if (symbolMetadata == null) {
+                    throw new Exception("No exchange metadata for " + ticker);
+                }
+                CandleView candles = gatherMAData(ticker);
+                if (candles.size() == 0) {
+                    throw new Exception("No candles for " + ticker);
+                }
+                PredictionEngine predictionEngine = predictTrendAndDecide(ticker, candles);
+                double buyPrice = CalcUtils.roundTo(
+                        predictionEngine.getCurrentPrice() * PredictionEngine.buyBackAfterThisPercentage, 8);
+                performBuyBack(ticker, predictionEngine, buyPrice, stopLoss, symbolMetadata);
+            } catch (Exception e) {
+                loggerUtil.error("Exception occurred during Buy Back", e);
+                loggerUtil.notify(ticker, "Error at performBuyBack method. error message - " + e.getMessage(),
+                        TelegramNotifier.Priority.HIGH);
+            }
+        };
+    }
+
+    /**
+     * Submit a limit buy back at the passed in price if the signal and balances allow it.
+     *
+     * @param predictionEngine PredictionEngine
+     * @param buyPrice         Price to buy at
+     * @param stopLossSignal   true if the coin was just sold for a stop loss
+     * @param symbolMetadata   Exchange rules of the ticker
+     */
+    private void performBuyBack(String ticker, PredictionEngine predictionEngine, double buyPrice, boolean stopLossSignal,
+                                SymbolMetadata symbolMetadata) throws Exception {
+        String message = "";
+        String cryptoCoin = ticker.replace("USDT", "");
+        double minPrice = symbolMetadata.getMinPrice();
         /**
          * Limit BUY method starts
          */
-        //TODO: refactor this method
         // Verify that we have the correct amount of asset to trade
         if (predictionEngine.getTradeSignal().equalsIgnoreCase("SELL")
                 || predictionEngine.getTradeSignal().equalsIgnoreCase("RISK BUY")
@@ -452,34 +513,35 @@ public class BotEngine {
          *         }
          */
 
-        account = client.getAccount();
-        Double totalBalance = getTotalBalanceInUSDT();
+        Account account = accountSnapshotService.get();
+        double totalBalance = getTotalBalanceInUSDT();
         Double coinAllocatePercent = env.getProperty("trading.bot." + ticker + ".percentAllocate", Double.class);
         if(coinAllocatePercent == null) {
             coinAllocatePercent = PredictionEngine.altCoinAllocatePercent;
         }
         //Double coinAllocatePercent = calculateAllocatePercentBasedOnVolume(ticker);
-        Double allocateValueForthisCoinInUSDT = (totalBalance * coinAllocatePercent) / 100;
-        Double freeUSDT = Double.valueOf(account.getAssetBalance("USDT").getFree());
-        balance = account.getAssetBalance(cryptoCoin);
-        sellableAmount = Double.valueOf(balance.getFree()) + Double.valueOf(balance.getLocked());
+        double allocateValueForthisCoinInUSDT = (totalBalance * coinAllocatePercent) / 100;
+        AssetBalance balance = account.getAssetBalance(cryptoCoin);
+        double sellableAmount = Double.parseDouble(balance.getFree()) + Double.parseDouble(balance.getLocked());
 
-        Double minQty = Double.valueOf(symbolFilters.stream().filter(i -> i.getFilterType().name().equals(FilterType.LOT_SIZE.name()))
-                .findFirst().get().getMinQty());
+        double minQty = symbolMetadata.getMinQty();
 
-        if (sellableAmount > minQty || freeUSDT < allocateValueForthisCoinInUSDT) {
+        if (sellableAmount > minQty) {
             message = "Cannot buy";
             loggerUtil.info(message);
             //loggerUtil.notify(ticker, message);
             return;
         }
-        // Calculate and round the values in preparation for buying back
-        Double allocateValueInUSDTFloored = CalcUtils.floorTo(allocateValueForthisCoinInUSDT, 2);
-        Double coinToBuyFloored = CalcUtils.floorTo(allocateValueInUSDTFloored / buyPrice, String.valueOf(buyPrice.intValue()).length() - 1);
-
-        Double minNotional = Double.valueOf(symbolFilters.stream().filter(i -> i.getFilterType().name().equals(FilterType.MIN_NOTIONAL.name()))
-                .findFirst().get().getMinNotional());
-        if ((coinToBuyFloored * buyPrice) < minNotional || buyPrice < minPrice) {
+        // Calculate and round the values to the tick and step sizes in preparation for buying back
+        double allocateValueInUSDTFloored = CalcUtils.floorTo(allocateValueForthisCoinInUSDT, 2);
+        long buyPriceUnits = symbolMetadata.floorPrice(FixedDecimal.fromDouble(buyPrice));
+        buyPrice = FixedDecimal.toDouble(buyPriceUnits);
+        long buyQuantity = buyPriceUnits <= 0 ? 0
+                : symbolMetadata.floorQuantity(FixedDecimal.fromDouble(allocateValueInUSDTFloored / buyPrice));
+        double coinToBuyFloored = FixedDecimal.toDouble(buyQuantity);
+
+        double minNotional = symbolMetadata.getMinNotional();
+        if (buyQuantity <= 0 || (coinToBuyFloored * buyPrice) < minNotional || buyPrice < minPrice) {
             message = "coinToBuyFloored : " + coinToBuyFloored + "; buyPrice : " + buyPrice + "; minPrice : " + minPrice
                      + "; minNotional"  + minNotional
                     + "; (coinToBuyFloored * buyPrice) < minNotional || buyPrice < minPrice. Cannot buy";
@@ -497,26 +559,34 @@ public class BotEngine {
                     loggerUtil.info("Cancelling order: " + order.getOrderId());
                     client.cancelOrder(new CancelOrderRequest(ticker, order.getOrderId()));
                 });
+                accountSnapshotService.invalidate();
+            }
+            // Check and reserve the free USDT in one step, other symbols may be buying at the same time
+            if (!accountSnapshotService.tryReserve("USDT", coinToBuyFloored * buyPrice)) {
+                message = "Not enough free USDT. Cannot buy";
+                loggerUtil.info(message);
+                return;
             }
 
-            buyPrice = CalcUtils.floorTo(buyPrice, floorDecimal);
+            String quantity = symbolMetadata.formatQuantity(buyQuantity);
+            String price = symbolMetadata.formatPrice(buyPriceUnits);
 
-            //Send SMA graph before limit buy
-            movingAverageChartHelper.sendTelegramMessage(ticker, predictionEngine.getjFreeChart());
+            //Send SMA graph before limit buy, rendered and uploaded in the background
+            movingAverageChartHelper.sendTelegramMessage(ticker, predictionEngine.getCandles());
             loggerUtil.info(
                     "Executing buy with: "
                             + allocateValueInUSDTFloored
                             + " USDT @ $"
-                            + df.format(buyPrice)
+                            + price
                             + "="
-                            + coinToBuyFloored
+                            + quantity
                             + " " + cryptoCoin);
             loggerUtil.notify(ticker, "Executing buy with: "
                     + allocateValueInUSDTFloored
                     + " USDT @ $"
-                    + df.format(buyPrice)
+                    + price
                     + "="
-                    + coinToBuyFloored
+                    + quantity
                     + " " + cryptoCoin);
             // Submit the Binance buy back
             NewOrderResponse performBuy =
@@ -524,18 +594,18 @@ public class BotEngine {
                             limitBuy(
                                     ticker,
                                     TimeInForce.GTC,
-                                    coinToBuyFloored.toString(),
-                                    df.format(buyPrice)));
+                                    quantity,
+                                    price));
             loggerUtil.info("Trade submitted: " + performBuy.getTransactTime());
             loggerUtil.notify(ticker, "Limit Buy submitted");
         } catch (Exception e) {
+            accountSnapshotService.invalidate();
             loggerUtil.error("There was an exception thrown during the buy?: " + e.getMessage());
             throw new Exception(e);
         }
         /**
          * Limit BUY method ends
          */
-        new CalcUtils().sleeper(3000);
     }
 
     public static void main(String[] args) {
@@ -555,9 +625,11 @@ public class BotEngine {
             loggerUtil.info("Cancelling order: " + order.getOrderId());
             client.cancelOrder(new CancelOrderRequest(ticker, order.getOrderId()));
         }
+        if (!openOrders.isEmpty()) {
+            accountSnapshotService.invalidate();
+        }
         // Execute market buy back
-        new CalcUtils().sleeper(3000);
-        Account account = client.getAccount();
+        Account account = accountSnapshotService.get();
 
         Double totalBalance = getTotalBalanceInUSDT();
         // Find out how much free asset there is to trade
@@ -567,23 +639,30 @@ public class BotEngine {
             coinAllocatePercent = 500.00 / totalBalance;
         }
         Double allocateValueForThisCoinInUSDT = (totalBalance * coinAllocatePercent) / 100;
-        Double freeUSDT = Double.valueOf(account.getAssetBalance("USDT").getFree());
-
         AssetBalance assetBalance = account.getAssetBalance(cryptoCoin);
         Double amount = Double.valueOf(assetBalance.getFree()) + Double.valueOf(assetBalance.getLocked());
+        boolean reserved = accountSnapshotService.tryReserve("USDT", allocateValueForThisCoinInUSDT);
 
-        if (amount > 0.0 && freeUSDT < allocateValueForThisCoinInUSDT) {
+        if (amount > 0.0 && !reserved) {
             message = "Cannot execute market buy";
             loggerUtil.info(message);
             loggerUtil.notify(ticker, message);
             return false;
         }
-        Double lastPrice = getCurrentPrice(ticker);
-        Double coinToBuyFloored = CalcUtils.floorTo(allocateValueForThisCoinInUSDT / lastPrice, String.valueOf(lastPrice.intValue()).length() - 1);
-        message = "Executing market buy back of " + coinToBuyFloored + " " + cryptoCoin + " @ $" + lastPrice;
+        SymbolMetadata symbolMetadata = symbolMetadataCache.get(ticker);
+        if (symbolMetadata == null) {
+            loggerUtil.info("No exchange metadata for " + ticker + ". Cannot execute market buy");
+            accountSnapshotService.invalidate();
+            return false;
+        }
+        double lastPrice = getCurrentPrice(ticker);
+        String quantity = symbolMetadata.formatQuantity(
+                symbolMetadata.floorQuantity(FixedDecimal.fromDouble(allocateValueForThisCoinInUSDT / lastPrice)));
+        message = "Executing market buy back of " + quantity + " " + cryptoCoin + " @ $" + lastPrice;
         loggerUtil.info(message);
         loggerUtil.notify(ticker, message);
-        client.newOrder(marketBuy(ticker, coinToBuyFloored.toString()));
+        client.newOrder(marketBuy(ticker, quantity));
+        accountSnapshotService.invalidate();
         new CalcUtils().sleeper(15000);
         message = "market buy back submitted successfully";
         loggerUtil.notify(ticker, message);
@@ -596,7 +675,7 @@ public class BotEngine {
         tickerStatistics = client.get24HrPriceStatistics("BTCUSDT");
         Double btc24hVolumeInUSDT = Double.valueOf(tickerStatistics.getVolume()) * Double.valueOf(tickerStatistics.getLastPrice());
         if (ticker24hVolumeInUSDT > btc24hVolumeInUSDT) {
-            loggerUtil.notify(ticker, "Ticker volume > BTC volume. very unreal. Check this!");
+            loggerUtil.notify(ticker, "Ticker volume > BTC volume. very unreal. Check this!", TelegramNotifier.Priority.LOW);
             return 0.0;
         }
         return CalcUtils.roundTo((ticker24hVolumeInUSDT / btc24hVolumeInUSDT) * 100, 2);
@@ -609,25 +688,18 @@ public class BotEngine {
         loggerUtil.debug("Bot is currently in development mode! Not performing trades");
     }
 
-    public PredictionEngine predictTrendAndDecide(String ticker, List<Candlestick> candlesticks) {
+    public PredictionEngine predictTrendAndDecide(String ticker, CandleView candles) {
         PredictionEngine predictionEngine = new PredictionEngine();
-        //Get JFreeChart
-        JFreeChart jFreeChart = movingAverageChartHelper.getChart(ticker, candlesticks);
-        //Send chart to telegram bot group
-        predictionEngine.setjFreeChart(jFreeChart);
-        TimeSeriesCollection timeSeriesCollection = (TimeSeriesCollection) jFreeChart.getXYPlot().getDataset();
-        TimeSeries liveTimeSeries = timeSeriesCollection.getSeries(0);
-        TimeSeries shortTermSeries = timeSeriesCollection.getSeries(1);
-        TimeSeries longTermSeries = timeSeriesCollection.getSeries(2);
-        TimeSeriesDataItem liveTermSeriesDataItem = liveTimeSeries.getDataItem(liveTimeSeries.getItemCount() - 1);
-        TimeSeriesDataItem shortTermSeriesDataItem = shortTermSeries.getDataItem(shortTermSeries.getItemCount() - 1);
-        TimeSeriesDataItem longTermSeriesDataItem = longTermSeries.getDataItem(longTermSeries.getItemCount() - 1);
+        //JFreeChart is only built if the chart is actually sent to the telegram bot group
+        predictionEngine.setCandles(candles);
+        //Update running SMA sums with the newly closed candles
+        IndicatorState indicatorState = movingAverageEngine.update(ticker, candles);
         //Check shortTerm crosses longTerm graph
         StringBuilder messageBuilder = new StringBuilder();
-        if (shortTermSeriesDataItem.getPeriod().getEnd().equals(longTermSeriesDataItem.getPeriod().getEnd())) {
-            Double shortSMAValue = new BigDecimal(shortTermSeriesDataItem.getValue().doubleValue()).setScale(8, RoundingMode.HALF_UP).doubleValue();
-            Double longSMAValue = new BigDecimal(longTermSeriesDataItem.getValue().doubleValue()).setScale(8, RoundingMode.HALF_UP).doubleValue();
-            Double currentValue = new BigDecimal(liveTermSeriesDataItem.getValue().doubleValue()).setScale(8, RoundingMode.HALF_UP).doubleValue();
+        if (indicatorState != null) {
+            double shortSMAValue = CalcUtils.roundTo(indicatorState.getShortTermAverage(), 8);
+            double longSMAValue = CalcUtils.roundTo(indicatorState.getLongTermAverage(), 8);
+            double currentValue = CalcUtils.roundTo(indicatorState.getCurrentPrice(), 8);
             predictionEngine.setCurrentPrice(currentValue);
             predictionEngine.setLastShortTermPrice(shortSMAValue);
             messageBuilder.append("shortTermMA").append(":").append(shortSMAValue).append("; ")
@@ -637,20 +709,21 @@ public class BotEngine {
             //loggerUtil.notify(ticker, messageBuilder.toString());
             loggerUtil.info(messageBuilder.toString());
             messageBuilder = new StringBuilder();
+            String tradeSignal = PredictionEngine.classifySignal(shortSMAValue, longSMAValue, currentValue,
+                    PredictionEngine.sellPriceMultiplier);
+            predictionEngine.setTradeSignal(tradeSignal);
             if (shortSMAValue == longSMAValue) {
                 messageBuilder.append("_________GOLDEN CROSS_________").append("shortTermSMA equals longTermSMA")
                         .append("Keep watching this trend. It might either be BUY or SELL signal in future").append("; ");
             } else if (shortSMAValue > longSMAValue) {
                 messageBuilder.append("shortTermMA").append(">").append("longTermMA")
                         .append("; ");
-                if (currentValue >= (shortSMAValue * PredictionEngine.sellPriceMultiplier)) {
+                if (tradeSignal.equals(PredictionEngine.SIGNAL_GOOD_BUY)) {
                     messageBuilder.append("CurrentPrice").append(">=").append("(shortSMAValue * AvgPredictionEngine.sellPriceMultiplier)").append("; ")
                             .append("GOOD BUY SIGNAL").append("; ");
-                    predictionEngine.setTradeSignal("GOOD BUY");
                 } else {
                     messageBuilder.append("CurrentPrice").append("<").append("shortSMAValue").append("; ")
                             .append("RISK BUY SIGNAL").append("; ");
-                    predictionEngine.setTradeSignal("RISK BUY");
                 }
             } else if (shortSMAValue <= longSMAValue) {
                 messageBuilder.append("shortTermMA").append("<=").append("longTermMA")
@@ -660,11 +733,9 @@ public class BotEngine {
                             .append("CurrentPrice").append(">=").append("shortSMAValue").append("; ")
                             .append("Don't take this Risk. you will lose in long run").append("; ")
                             .append("SELL SIGNAL").append("; ");
-                    predictionEngine.setTradeSignal("SELL");
                 } else {
                     messageBuilder.append("currentValue").append("<").append("shortSMAValue")
                             .append("; ").append("SELL SIGNAL").append("; ");
-                    predictionEngine.setTradeSignal("SELL");
                 }
             }
             loggerUtil.info(messageBuilder.toString());
@@ -1,22 +1,28 @@
 package com.naga.tradingbot.service;
 
-import com.binance.api.client.domain.market.Candlestick;
-import com.naga.tradingbot.model.data.PredictionEngine;
 import org.apache.log4j.Logger;
+import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-
+/**
+ * Runs a single ticker on its own cron, see {@link JobScheduler}. Firings of the same ticker never
+ * overlap. Every node schedules the job; a firing only trades if this node owns the ticker at that
+ * moment, so the ticker moves with its shard.
+ */
 @Service
+@DisallowConcurrentExecution
 public class BotExecuteEachCoinJob implements Job {
 
-    private static final Logger logger = Logger.getLogger(BotExecuteJob.class);
+    private static final Logger logger = Logger.getLogger(BotExecuteEachCoinJob.class);
+
+    @Autowired
+    private BotExecuteJob botExecuteJob;
 
     @Autowired
-    private BotEngine botEngine;
+    private ShardAssigner shardAssigner;
 
     @Override
     public void execute(JobExecutionContext jobExecutionContext) {
@@ -24,17 +30,10 @@ public class BotExecuteEachCoinJob implements Job {
     }
 
     public void runBot(String ticker) {
-        try {
-            //get data from binance
-            List<Candlestick> candlesticks = botEngine.gatherMAData(ticker);
-            if(candlesticks.isEmpty())
-                return;
-            //create chart and predict and output the BUY/SELL signal
-            PredictionEngine predictionEngine = botEngine.predictTrendAndDecide(ticker, candlesticks);
-            //BUY or SELL execution
-            botEngine.tradeBasedOnSignal(ticker, predictionEngine);
-        } catch (Exception e) {
-            logger.error("There was an error during the main trading loop! {}", e);
+        if (!shardAssigner.owns(ticker)) {
+            logger.debug("Ticker : " + ticker + " belongs to another node. Skipping");
+            return;
         }
+        botExecuteJob.runBot(ticker);
     }
 }
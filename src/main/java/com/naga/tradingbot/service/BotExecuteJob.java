@@ -1,61 +1,251 @@
 package com.naga.tradingbot.service;
 
-import com.binance.api.client.domain.general.SymbolInfo;
-import com.binance.api.client.domain.market.Candlestick;
+import com.naga.tradingbot.metrics.MetricsRegistry;
+import com.naga.tradingbot.model.data.CandleView;
 import com.naga.tradingbot.model.data.PredictionEngine;
+import com.naga.tradingbot.utils.LoggerUtil;
+import com.naga.tradingbot.utils.TelegramNotifier;
 import org.apache.log4j.Logger;
+import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.env.Environment;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
+/**
+ * Full scan of the tickers traded by this node, fired by the {@link JobScheduler} after every hourly
+ * candle close. Tickers whose latest closed candle was already evaluated are skipped without a call to
+ * Binance.
+ */
 @Service
+@DisallowConcurrentExecution
 public class BotExecuteJob implements Job {
 
     private static final Logger logger = Logger.getLogger(BotExecuteJob.class);
 
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+
     @Autowired
     private BotEngine botEngine;
 
     @Autowired
-    private Environment env;
+    private SymbolLocks symbolLocks;
+
+    @Autowired
+    private BinanceRateLimiter binanceRateLimiter;
+
+    @Autowired
+    private SymbolMetadataCache symbolMetadataCache;
+
+    @Autowired
+    private AccountSnapshotService accountSnapshotService;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private ShardAssigner shardAssigner;
+
+    @Autowired
+    private JobScheduler jobScheduler;
+
+    @Autowired
+    private LoggerUtil loggerUtil;
+
+    @Autowired
+    private WarmStartSnapshot warmStartSnapshot;
+
+    /**
+     * Number of tickers scanned in parallel. 1 keeps the sequential scan.
+     */
+    @Value("${trading.bot.scan.threads:1}")
+    private int scanThreads;
+
+    /**
+     * Re-evaluates a ticker only once a candle closed after the one it was last evaluated on.
+     */
+    @Value("${trading.bot.schedule.skipUnchanged:true}")
+    private boolean skipUnchanged;
+
+    private ExecutorService scanPool;
+
+    /**
+     * Close time of the latest closed candle each ticker was evaluated on.
+     */
+    private final Map<String, Long> evaluatedCloseTimes = new ConcurrentHashMap<>();
 
     @Override
     public void execute(JobExecutionContext jobExecutionContext) {
-        List<String> tickers = botEngine.getClient().getExchangeInfo()
-                .getSymbols().stream().filter(i -> i.getSymbol().endsWith("USDT"))
-                .map(SymbolInfo::getSymbol)
+        loggerUtil.notify("BTCUSDT", "Run started @ " + new Date() + " on " + shardAssigner.getNodeId(),
+                TelegramNotifier.Priority.LOW);
+        List<String> tickers = getTickers();
+        // Owned tickers with their own cron run there; the rest are not this node's
+        tickers.removeAll(jobScheduler.getIndividuallyScheduled());
+        // Balances are loaded once per cycle and then kept up to date locally
+        accountSnapshotService.invalidate();
+        long cycleStart = System.currentTimeMillis();
+        Map<String, Long> tickerDurations = new ConcurrentHashMap<>();
+        if (scanThreads <= 1) {
+            for (String ticker : tickers) {
+                timedRunBot(ticker, tickerDurations);
+            }
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (String ticker : tickers) {
+                tasks.add(() -> {
+                    timedRunBot(ticker, tickerDurations);
+                    return null;
+                });
+            }
+            try {
+                getScanPool().invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Ticker scan interrupted", e);
+            }
+        }
+        reportCycle(tickers.size(), System.currentTimeMillis() - cycleStart, tickerDurations);
+        warmStartSnapshot.save();
+    }
+
+    /**
+     * Returns the USDT tickers traded by this node. Membership is re-read on every call, so a scan
+     * picks up the symbols of nodes that left since the last one.
+     */
+    public List<String> getTickers() {
+        return shardAssigner.filterOwned(getAllTickers());
+    }
+
+    /**
+     * Returns the USDT tickers traded by all nodes together.
+     */
+    public List<String> getAllTickers() {
+        return symbolMetadataCache.getSymbols().stream()
+                .filter(i -> i.endsWith("USDT"))
                 .filter(i -> !i.equals("BNBUSDT"))
                 .sorted(Comparator.naturalOrder())
                 .collect(Collectors.toList());
-        if (env.getProperty("spring.profiles.active", String.class).equals("pi1")) {
-            tickers = tickers.stream().limit(tickers.size() / 2).collect(Collectors.toList());
-        } else if (env.getProperty("spring.profiles.active", String.class).equals("pi2")) {
-            tickers = tickers.stream().skip(tickers.size() / 2).collect(Collectors.toList());
-        }
-        for (String ticker : tickers) {
-            runBot(ticker);
-        }
     }
 
-    public void runBot(String ticker) {
+    /**
+     * Gathers, decides and trades one ticker.
+     *
+     * @return false if the ticker was skipped because it is busy or has no new closed candle
+     */
+    public boolean runBot(String ticker) {
+        long lastClosedCandle = System.currentTimeMillis() / HOUR_MILLIS * HOUR_MILLIS - 1;
+        Long evaluated = evaluatedCloseTimes.get(ticker);
+        if (skipUnchanged && evaluated != null && evaluated >= lastClosedCandle) {
+            logger.debug("Ticker : " + ticker + " has no new closed candle. Skipping");
+            metricsRegistry.increment("cycle.skipped");
+            return false;
+        }
+        ReentrantLock lock = symbolLocks.get(ticker);
+        if (!lock.tryLock()) {
+            logger.info("Ticker : " + ticker + " is already being processed. Skipping");
+            return false;
+        }
         logger.info("Ticker : " + ticker);
         try {
             //get data from binance
-            List<Candlestick> candlesticks = botEngine.gatherMAData(ticker);
-            if (candlesticks.isEmpty())
-                return;
+            CandleView candles = metricsRegistry.time("bot.gatherMAData", () -> botEngine.gatherMAData(ticker));
+            if (candles.size() == 0)
+                return true;
             //create chart and predict and output the BUY/SELL signal
-            PredictionEngine predictionEngine = botEngine.predictTrendAndDecide(ticker, candlesticks);
+            PredictionEngine predictionEngine = metricsRegistry.time("bot.predictTrendAndDecide",
+                    () -> botEngine.predictTrendAndDecide(ticker, candles));
             //BUY or SELL execution
-            botEngine.tradeBasedOnSignal(ticker, predictionEngine);
+            metricsRegistry.time("bot.tradeBasedOnSignal", () -> botEngine.tradeBasedOnSignal(ticker, predictionEngine));
+            // Only a completed evaluation counts; after an error the next firing tries again
+            rememberLastClose(ticker, candles);
         } catch (Exception e) {
             logger.error("There was an error during the main trading loop! {}", e);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Close time of the latest closed candle each ticker was evaluated on, for the {@link WarmStartSnapshot}.
+     */
+    public Map<String, Long> getEvaluatedCloseTimes() {
+        return Collections.unmodifiableMap(evaluatedCloseTimes);
+    }
+
+    /**
+     * Restores an evaluation saved by the previous run, so a ticker without a newer closed candle is
+     * skipped as if the bot had not been restarted.
+     */
+    public void restoreEvaluation(String ticker, long closeTime) {
+        evaluatedCloseTimes.merge(ticker, closeTime, Math::max);
+    }
+
+    private void rememberLastClose(String ticker, CandleView candles) {
+        long closeTime = candles.getLastClosedCloseTime();
+        if (closeTime != Long.MIN_VALUE) {
+            evaluatedCloseTimes.put(ticker, closeTime);
+        }
+    }
+
+    private void timedRunBot(String ticker, Map<String, Long> tickerDurations) {
+        long start = System.currentTimeMillis();
+        if (runBot(ticker)) {
+            tickerDurations.put(ticker, System.currentTimeMillis() - start);
+        }
+    }
+
+    private void reportCycle(int tickerCount, long cycleMillis, Map<String, Long> tickerDurations) {
+        metricsRegistry.timer("cycle.duration").record(cycleMillis * 1000000);
+        metricsRegistry.add("cycle.tickers", tickerCount);
+        metricsRegistry.gauge("cycle.lastTickers", () -> tickerCount);
+        metricsRegistry.gauge("cycle.lastDurationMs", () -> cycleMillis);
+        long total = tickerDurations.values().stream().mapToLong(Long::longValue).sum();
+        String slowest = tickerDurations.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(5)
+                .map(i -> i.getKey() + "=" + i.getValue() + "ms")
+                .collect(Collectors.joining(", "));
+        logger.info("Scan of " + tickerCount + " tickers (" + tickerDurations.size() + " evaluated) finished in "
+                + cycleMillis / 1000 + "s with "
+                + Math.max(scanThreads, 1) + " worker(s); avg per ticker "
+                + (tickerDurations.isEmpty() ? 0 : total / tickerDurations.size()) + "ms; slowest: " + slowest
+                + "; request weight used " + binanceRateLimiter.getUsedWeight() + "/" + binanceRateLimiter.getWeightLimit());
+        logger.debug("Per ticker durations (ms): " + tickerDurations);
+    }
+
+    private synchronized ExecutorService getScanPool() {
+        if (scanPool == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            scanPool = Executors.newFixedThreadPool(scanThreads, runnable -> {
+                Thread thread = new Thread(runnable, "scan-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scanPool;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (scanPool != null) {
+            scanPool.shutdownNow();
         }
     }
 }
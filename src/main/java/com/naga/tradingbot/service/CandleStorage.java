@@ -0,0 +1,46 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.market.Candlestick;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.model.data.CandleView;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * On-disk format of the {@link CandleStore}: closed candles, one file per symbol and interval, in open
+ * time order.
+ */
+public interface CandleStorage {
+
+    /**
+     * Closed candles of the symbol that opened at or after {@code windowStart}; empty if none are stored.
+     */
+    CandleView read(String ticker, CandlestickInterval interval, long windowStart) throws IOException;
+
+    /**
+     * Appends closed candles in open time order. Candles not newer than the last stored one are skipped.
+     */
+    void append(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) throws IOException;
+
+    /**
+     * Replaces every stored candle of the symbol. The candles are written to a new file that is then
+     * moved over the old one, so a crash leaves either the old candles or the new ones.
+     */
+    void replace(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) throws IOException;
+
+    /**
+     * Close time of the newest stored candle of the symbol, Long.MIN_VALUE if none are stored.
+     */
+    long getLastCloseTime(String ticker, CandlestickInterval interval) throws IOException;
+
+    /**
+     * Symbols that have a file for the interval.
+     */
+    List<String> listTickers(CandlestickInterval interval) throws IOException;
+
+    /**
+     * Removes the file of the symbol, e.g. when it is unreadable.
+     */
+    void delete(String ticker, CandlestickInterval interval) throws IOException;
+}
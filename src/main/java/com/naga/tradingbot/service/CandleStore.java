@@ -0,0 +1,221 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.market.Candlestick;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.model.data.CandleSeries;
+import com.naga.tradingbot.model.data.CandleView;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local on-disk store of closed candles, one file per symbol and interval. Lets the bot fetch only
+ * the candles that closed since the last stored close time instead of the whole history window.
+ * <p>
+ * The format is {@code trading.bot.candleStore.format}: {@code mapped} for the memory-mapped
+ * {@link MappedCandleStorage}, {@code compressed} for the block-compressed
+ * {@link CompressedCandleStorage}, {@code csv} for the text {@link CsvCandleStorage}. With a binary
+ * format, the CSV file of a symbol written by earlier versions is imported the first time the symbol
+ * is used.
+ * <p>
+ * A file is only discarded when its content is corrupt. Other read errors, e.g. a failed mapping or
+ * too many open files, are thrown as {@link UncheckedIOException} so the caller skips the symbol this
+ * time and the history is still there on the next try.
+ */
+@Service
+public class CandleStore {
+
+    private static final Logger logger = Logger.getLogger(CandleStore.class);
+
+    @Value("${trading.bot.candleStore.dir:candles}")
+    private String storeDir;
+
+    @Value("${trading.bot.candleStore.format:mapped}")
+    private String format;
+
+    @Value("${trading.bot.candleStore.blockSize:1024}")
+    private int blockSize = 1024;
+
+    private volatile CandleStorage storage;
+
+    private CsvCandleStorage legacyStorage;
+
+    /**
+     * The storage per symbol and interval once its CSV file was imported.
+     */
+    private final Map<String, CandleStorage> imported = new ConcurrentHashMap<>();
+
+    /**
+     * Stored closed candles of a symbol whose open time is at or after windowStart. With the mapped
+     * format the view reads straight from the file mapping, with the compressed format only the blocks
+     * in the window are decoded.
+     *
+     * @param ticker      symbol, e.g. BTCUSDT
+     * @param interval    candle interval
+     * @param windowStart oldest open time to return (epoch millis)
+     * @return candles in open time order, empty if nothing is stored yet or the file was corrupt
+     * @throws UncheckedIOException if the file could not be read
+     */
+    public CandleView view(String ticker, CandlestickInterval interval, long windowStart) {
+        CandleStorage storage = getStorage(ticker, interval);
+        try {
+            return storage.read(ticker, interval, windowStart);
+        } catch (CorruptCandleStoreException e) {
+            logger.error("Candle store of " + ticker + " is corrupt. Discarding it", e);
+            delete(storage, ticker, interval);
+            return CandleView.empty(ticker);
+        } catch (IOException e) {
+            logger.error("Unable to read candle store of " + ticker, e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Like {@link #view} but copied into heap columns, for code that keeps or replays the candles.
+     */
+    public CandleSeries loadSeries(String ticker, CandlestickInterval interval, long windowStart) {
+        return CandleSeries.of(view(ticker, interval, windowStart));
+    }
+
+    /**
+     * Appends closed candles to the store of a symbol. Candles not newer than the last stored close
+     * time are skipped.
+     */
+    public void append(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) {
+        if (candlesticks.isEmpty()) {
+            return;
+        }
+        try {
+            getStorage(ticker, interval).append(ticker, interval, candlesticks);
+        } catch (IOException e) {
+            logger.error("Unable to append to candle store of " + ticker, e);
+        }
+    }
+
+    /**
+     * Replaces every stored candle of a symbol, for repairs in the middle of the history that an append
+     * cannot make. The stored candles stay as they were until the new ones are complete.
+     */
+    public void replace(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) {
+        try {
+            getStorage(ticker, interval).replace(ticker, interval, candlesticks);
+        } catch (IOException e) {
+            logger.error("Unable to replace candle store of " + ticker, e);
+        }
+    }
+
+    /**
+     * Close time of the newest stored candle of a symbol, Long.MIN_VALUE if nothing is stored or the file
+     * was corrupt.
+     *
+     * @throws UncheckedIOException if the file could not be read
+     */
+    public long getLastCloseTime(String ticker, CandlestickInterval interval) {
+        CandleStorage storage = getStorage(ticker, interval);
+        try {
+            return storage.getLastCloseTime(ticker, interval);
+        } catch (CorruptCandleStoreException e) {
+            logger.error("Candle store of " + ticker + " is corrupt. Discarding it", e);
+            delete(storage, ticker, interval);
+            return Long.MIN_VALUE;
+        } catch (IOException e) {
+            logger.error("Unable to read candle store of " + ticker, e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lists the symbols that have a store file for the interval.
+     */
+    public List<String> listTickers(CandlestickInterval interval) {
+        Set<String> tickers = new TreeSet<>();
+        try {
+            tickers.addAll(getStorage().listTickers(interval));
+            if (legacyStorage != null) {
+                tickers.addAll(legacyStorage.listTickers(interval));
+            }
+        } catch (IOException e) {
+            logger.error("Unable to list candle store " + storeDir, e);
+        }
+        return new ArrayList<>(tickers);
+    }
+
+    private CandleStorage getStorage() {
+        if (storage == null) {
+            synchronized (this) {
+                if (storage == null) {
+                    if ("csv".equalsIgnoreCase(format)) {
+                        storage = new CsvCandleStorage(Paths.get(storeDir));
+                    } else {
+                        legacyStorage = new CsvCandleStorage(Paths.get(storeDir));
+                        storage = "compressed".equalsIgnoreCase(format)
+                                ? new CompressedCandleStorage(Paths.get(storeDir), blockSize)
+                                : new MappedCandleStorage(Paths.get(storeDir));
+                    }
+                }
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * The storage, after importing the CSV file of the symbol into the binary archive if there is one.
+     * Only the first use of a symbol waits for its import.
+     */
+    private CandleStorage getStorage(String ticker, CandlestickInterval interval) {
+        CandleStorage storage = getStorage();
+        if (legacyStorage == null) {
+            return storage;
+        }
+        return imported.computeIfAbsent(ticker + "_" + interval.getIntervalId(), key -> {
+            try {
+                CandleView legacy = legacyStorage.read(ticker, interval, Long.MIN_VALUE);
+                if (legacy.size() > 0 && storage.getLastCloseTime(ticker, interval) == Long.MIN_VALUE) {
+                    storage.append(ticker, interval, toCandlesticks(legacy));
+                    legacyStorage.delete(ticker, interval);
+                    logger.info("Imported " + legacy.size() + " " + ticker + " candles into the " + format + " candle store");
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Unable to import the CSV candle store of " + ticker, e);
+            }
+            return storage;
+        });
+    }
+
+    /**
+     * The closed candles of a view as Binance candles, for writing them through another storage.
+     */
+    static List<Candlestick> toCandlesticks(CandleView view) {
+        List<Candlestick> candlesticks = new ArrayList<>(view.size());
+        for (int i = 0; i < view.size(); i++) {
+            Candlestick candlestick = new Candlestick();
+            candlestick.setOpenTime(view.getOpenTime(i));
+            candlestick.setCloseTime(view.getCloseTime(i));
+            candlestick.setOpen(Double.toString(view.getOpen(i)));
+            candlestick.setHigh(Double.toString(view.getHigh(i)));
+            candlestick.setLow(Double.toString(view.getLow(i)));
+            candlestick.setClose(Double.toString(view.getClose(i)));
+            candlestick.setVolume(Double.toString(view.getVolume(i)));
+            candlesticks.add(candlestick);
+        }
+        return candlesticks;
+    }
+
+    private void delete(CandleStorage storage, String ticker, CandlestickInterval interval) {
+        try {
+            storage.delete(ticker, interval);
+        } catch (IOException e) {
+            logger.error("Unable to delete candle store of " + ticker, e);
+        }
+    }
+}
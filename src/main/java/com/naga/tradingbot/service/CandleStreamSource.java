@@ -0,0 +1,22 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.event.CandlestickEvent;
+import com.binance.api.client.domain.market.CandlestickInterval;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Source of kline (candlestick) events for a set of symbols.
+ */
+public interface CandleStreamSource {
+
+    /**
+     * Subscribes to the kline streams of the given symbols. Events of the live candle and the final
+     * event of each closed candle ({@link CandlestickEvent#getBarFinal()}) are passed to the listener.
+     *
+     * @return handle that closes the subscription
+     */
+    Closeable subscribe(List<String> symbols, CandlestickInterval interval, Consumer<CandlestickEvent> listener);
+}
@@ -0,0 +1,383 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.market.Candlestick;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.utils.CandleCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Candles compressed with the {@link CandleCodec} in blocks of up to {@code blockSize} candles, for
+ * long histories of many symbols on a small disk. A read decodes only the blocks that overlap the
+ * window into a heap {@link CandleView}.
+ * <p>
+ * A file is a {@value #HEADER_SIZE} byte header (magic, version, block size) followed by blocks, each
+ * a {@value #BLOCK_HEADER_SIZE} byte header (encoded length, candle count, first and last open time,
+ * last close time) and the encoded candles. Appends never change written bytes: new candles go into new
+ * blocks after the last one, and a block cut short by a crash while appending is ignored and overwritten
+ * by the next append. Once the small blocks at the end add up to a full block, or there are
+ * {@value #MAX_TAIL_BLOCKS} of them, they are merged by writing the file anew and moving it over the old
+ * one. This process must be the only writer.
+ */
+public class CompressedCandleStorage implements CandleStorage {
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int BLOCK_HEADER_SIZE = 32;
+
+    /**
+     * "CNDZ" as a little-endian int.
+     */
+    private static final int MAGIC = 0x5A444E43;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Partial blocks allowed at the end of a file before they are merged.
+     */
+    private static final int MAX_TAIL_BLOCKS = 32;
+
+    private final Path dir;
+
+    private final int blockSize;
+
+    private final Map<String, Archive> archives = new ConcurrentHashMap<>();
+
+    public CompressedCandleStorage(Path dir, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.dir = dir;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public CandleView read(String ticker, CandlestickInterval interval, long windowStart) throws IOException {
+        Archive archive = open(ticker, interval);
+        synchronized (archive) {
+            int first = 0;
+            while (first < archive.blocks.size() && archive.blocks.get(first).lastOpenTime < windowStart) {
+                first++;
+            }
+            if (first == archive.blocks.size()) {
+                return CandleView.empty(ticker);
+            }
+            int count = 0;
+            for (int i = first; i < archive.blocks.size(); i++) {
+                count += archive.blocks.get(i).count;
+            }
+            long start = archive.blocks.get(first).offset;
+            byte[] data = readFully(archive.path, start, (int) (archive.end - start));
+            ByteBuffer records = ByteBuffer.allocate(count * CandleView.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = first; i < archive.blocks.size(); i++) {
+                long offset = archive.blocks.get(i).offset;
+                try {
+                    CandleCodec.decode(data, (int) (offset - start) + BLOCK_HEADER_SIZE, records);
+                } catch (RuntimeException e) {
+                    throw new CorruptCandleStoreException("Undecodable block at " + offset + " of " + archive.path, e);
+                }
+            }
+            return new CandleView(ticker, records, 0, count).from(windowStart);
+        }
+    }
+
+    @Override
+    public void append(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) throws IOException {
+        Archive archive = open(ticker, interval);
+        synchronized (archive) {
+            int tail = archive.blocks.size();
+            int tailCount = 0;
+            while (tail > 0 && archive.blocks.get(tail - 1).count < blockSize) {
+                tail--;
+                tailCount += archive.blocks.get(tail).count;
+            }
+            ByteBuffer records = ByteBuffer.allocate(candlesticks.size() * CandleView.RECORD_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long lastCloseTime = archive.lastCloseTime;
+            for (Candlestick candlestick : candlesticks) {
+                if (candlestick.getCloseTime() > lastCloseTime) {
+                    CandleView.put(records, candlestick);
+                    lastCloseTime = candlestick.getCloseTime();
+                }
+            }
+            int count = records.position() / CandleView.RECORD_SIZE;
+            if (count == 0) {
+                return;
+            }
+            if (tail == archive.blocks.size()
+                    || tailCount + count < blockSize && archive.blocks.size() - tail < MAX_TAIL_BLOCKS) {
+                appendBlocks(archive, new CandleView(ticker, records, 0, count));
+            } else {
+                // Merge the small blocks at the end with the new candles
+                ByteBuffer merged = ByteBuffer.allocate((tailCount + count) * CandleView.RECORD_SIZE)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if (tail < archive.blocks.size()) {
+                    long start = archive.blocks.get(tail).offset;
+                    byte[] data = readFully(archive.path, start, (int) (archive.end - start));
+                    for (int i = tail; i < archive.blocks.size(); i++) {
+                        CandleCodec.decode(data, (int) (archive.blocks.get(i).offset - start) + BLOCK_HEADER_SIZE, merged);
+                    }
+                }
+                records.flip();
+                merged.put(records);
+                rewrite(archive, tail, new CandleView(ticker, merged, 0, tailCount + count));
+            }
+            archive.lastCloseTime = lastCloseTime;
+        }
+    }
+
+    @Override
+    public void replace(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) throws IOException {
+        Archive archive = open(ticker, interval);
+        synchronized (archive) {
+            ByteBuffer records = ByteBuffer.allocate(candlesticks.size() * CandleView.RECORD_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long lastCloseTime = Long.MIN_VALUE;
+            for (Candlestick candlestick : candlesticks) {
+                if (candlestick.getCloseTime() > lastCloseTime) {
+                    CandleView.put(records, candlestick);
+                    lastCloseTime = candlestick.getCloseTime();
+                }
+            }
+            rewrite(archive, 0, new CandleView(ticker, records, 0, records.position() / CandleView.RECORD_SIZE));
+            archive.lastCloseTime = lastCloseTime;
+        }
+    }
+
+    @Override
+    public long getLastCloseTime(String ticker, CandlestickInterval interval) throws IOException {
+        Archive archive = open(ticker, interval);
+        synchronized (archive) {
+            return archive.lastCloseTime;
+        }
+    }
+
+    @Override
+    public List<String> listTickers(CandlestickInterval interval) throws IOException {
+        List<String> tickers = new ArrayList<>();
+        String suffix = getSuffix(interval);
+        if (!Files.isDirectory(dir)) {
+            return tickers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                tickers.add(name.substring(0, name.length() - suffix.length()));
+            }
+        }
+        Collections.sort(tickers);
+        return tickers;
+    }
+
+    @Override
+    public void delete(String ticker, CandlestickInterval interval) throws IOException {
+        Archive archive = archives.remove(ticker + getSuffix(interval));
+        Files.deleteIfExists(archive == null ? getPath(ticker, interval) : archive.path);
+    }
+
+    /**
+     * The archive of the symbol, with its block index read on first use.
+     */
+    private Archive open(String ticker, CandlestickInterval interval) throws IOException {
+        Archive archive = archives.computeIfAbsent(ticker + getSuffix(interval),
+                key -> new Archive(getPath(ticker, interval)));
+        synchronized (archive) {
+            if (!archive.opened) {
+                if (Files.exists(archive.path)) {
+                    try (FileChannel channel = FileChannel.open(archive.path, StandardOpenOption.READ)) {
+                        readIndex(archive, channel);
+                    }
+                }
+                archive.opened = true;
+            }
+        }
+        return archive;
+    }
+
+    private static void readIndex(Archive archive, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.limit(HEADER_SIZE);
+        if (size < HEADER_SIZE || channel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC
+                || header.getInt(4) != VERSION) {
+            throw new CorruptCandleStoreException("Not a version " + VERSION + " compressed candle archive: "
+                    + archive.path);
+        }
+        long offset = HEADER_SIZE;
+        while (offset + BLOCK_HEADER_SIZE <= size) {
+            header.clear();
+            if (channel.read(header, offset) < BLOCK_HEADER_SIZE) {
+                break;
+            }
+            int length = header.getInt(0);
+            if (length <= 0 || offset + BLOCK_HEADER_SIZE + length > size) {
+                // Torn by a crash while appending
+                break;
+            }
+            Block block = new Block(offset, header.getInt(4), header.getLong(8), header.getLong(16), header.getLong(24));
+            archive.blocks.add(block);
+            archive.lastCloseTime = block.lastCloseTime;
+            offset += BLOCK_HEADER_SIZE + length;
+        }
+        archive.end = offset;
+    }
+
+    /**
+     * Writes the candles as new blocks after the last block.
+     */
+    private void appendBlocks(Archive archive, CandleView candles) throws IOException {
+        long position = archive.end == 0 ? HEADER_SIZE : archive.end;
+        List<Block> written = new ArrayList<>();
+        ByteBuffer blocks = encode(candles, position, written);
+        Files.createDirectories(archive.path.getParent());
+        try (FileChannel channel = FileChannel.open(archive.path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            if (archive.end == 0) {
+                writeFully(channel, header(), 0);
+            } else if (channel.size() > archive.end) {
+                // What a crash left after the last complete block
+                channel.truncate(archive.end);
+            }
+            writeFully(channel, blocks, position);
+        }
+        archive.blocks.addAll(written);
+        archive.end = position + blocks.limit();
+    }
+
+    /**
+     * Writes the file anew with its first {@code keep} blocks followed by the candles, and moves it over
+     * the old file, so a crash leaves one or the other.
+     */
+    private void rewrite(Archive archive, int keep, CandleView candles) throws IOException {
+        long position = keep == 0 ? HEADER_SIZE
+                : keep < archive.blocks.size() ? archive.blocks.get(keep).offset : archive.end;
+        List<Block> written = new ArrayList<>();
+        ByteBuffer blocks = encode(candles, position, written);
+        Path dir = archive.path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(archive.path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, keep == 0 ? header() : ByteBuffer.wrap(readFully(archive.path, 0, (int) position)), 0);
+            writeFully(channel, blocks, position);
+        }
+        Files.move(tmp, archive.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        archive.blocks.subList(keep, archive.blocks.size()).clear();
+        archive.blocks.addAll(written);
+        archive.end = position + blocks.limit();
+    }
+
+    /**
+     * Encodes the candles into blocks of up to blockSize candles, the first one starting at offset.
+     */
+    private ByteBuffer encode(CandleView candles, long offset, List<Block> written) {
+        int count = candles.size();
+        ByteBuffer out = ByteBuffer.allocate(count * 8 + (count / blockSize + 1) * 64).order(ByteOrder.LITTLE_ENDIAN);
+        for (int from = 0; from < count; from += blockSize) {
+            int to = Math.min(from + blockSize, count);
+            byte[] encoded = CandleCodec.encode(candles, from, to);
+            Block block = new Block(offset, to - from, candles.getOpenTime(from), candles.getOpenTime(to - 1),
+                    candles.getCloseTime(to - 1));
+            if (out.remaining() < BLOCK_HEADER_SIZE + encoded.length) {
+                out = grow(out, BLOCK_HEADER_SIZE + encoded.length);
+            }
+            out.putInt(encoded.length).putInt(block.count).putLong(block.firstOpenTime).putLong(block.lastOpenTime)
+                    .putLong(block.lastCloseTime).put(encoded);
+            offset += BLOCK_HEADER_SIZE + encoded.length;
+            written.add(block);
+        }
+        out.flip();
+        return out;
+    }
+
+    private ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(blockSize).putInt(0);
+        header.flip();
+        return header;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static byte[] readFully(Path path, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new CorruptCandleStoreException("Compressed candle archive ends early: " + path);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    private Path getPath(String ticker, CandlestickInterval interval) {
+        return dir.resolve(ticker + getSuffix(interval));
+    }
+
+    private static String getSuffix(CandlestickInterval interval) {
+        return "_" + interval.getIntervalId() + ".cbin";
+    }
+
+    /**
+     * Position and range of one encoded block.
+     */
+    private static class Block {
+        private final long offset;
+        private final int count;
+        private final long firstOpenTime;
+        private final long lastOpenTime;
+        private final long lastCloseTime;
+
+        private Block(long offset, int count, long firstOpenTime, long lastOpenTime, long lastCloseTime) {
+            this.offset = offset;
+            this.count = count;
+            this.firstOpenTime = firstOpenTime;
+            this.lastOpenTime = lastOpenTime;
+            this.lastCloseTime = lastCloseTime;
+        }
+    }
+
+    /**
+     * Block index of one file, guarded by its own lock.
+     */
+    private static class Archive {
+        private final Path path;
+        private final List<Block> blocks = new ArrayList<>();
+        private boolean opened;
+        private long end;
+        private long lastCloseTime = Long.MIN_VALUE;
+
+        private Archive(Path path) {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.naga.tradingbot.service;
+
+import java.io.IOException;
+
+/**
+ * A candle store file whose content is not valid in its format: bad magic or version, an inconsistent
+ * header, or data that cannot be decoded. Unlike other read errors it does not go away by retrying, so
+ * the {@link CandleStore} discards the file.
+ */
+public class CorruptCandleStoreException extends IOException {
+
+    public CorruptCandleStoreException(String message) {
+        super(message);
+    }
+
+    public CorruptCandleStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,291 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.market.Candlestick;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.utils.DecimalParser;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Candles as CSV text, one row per candle with every field of the REST response. Readable by hand,
+ * but every read parses the whole file. Files that collected more than {@value #MAX_STALE_ROWS} rows
+ * older than the requested window are rewritten without them. A last row without its line break was
+ * cut short by a crash while appending; it is ignored and cut off by the next append.
+ */
+public class CsvCandleStorage implements CandleStorage {
+
+    private static final Logger logger = Logger.getLogger(CsvCandleStorage.class);
+
+    /**
+     * Stale rows (older than the requested window) tolerated in a file before it is rewritten.
+     */
+    private static final int MAX_STALE_ROWS = 1000;
+
+    /**
+     * Rough length of a stored row, to size the buffer before parsing.
+     */
+    private static final int AVERAGE_ROW_LENGTH = 130;
+
+    /**
+     * Bytes read from the end of a file to find its last row.
+     */
+    private static final int TAIL_LENGTH = 1024;
+
+    private final Path dir;
+
+    public CsvCandleStorage(Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public CandleView read(String ticker, CandlestickInterval interval, long windowStart) throws IOException {
+        Path path = getPath(ticker, interval);
+        if (!Files.exists(path)) {
+            return CandleView.empty(ticker);
+        }
+        String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        ByteBuffer records = ByteBuffer.allocate(Math.max(16, text.length() / AVERAGE_ROW_LENGTH) * CandleView.RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int staleRows = 0;
+        int firstKept = -1;
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                logger.info("Ignoring the unfinished last row of " + path);
+                break;
+            }
+            int rowEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (rowEnd > lineStart) {
+                try {
+                    long openTime = DecimalParser.parseLong(text, lineStart, field(text, lineStart, rowEnd));
+                    if (openTime < windowStart) {
+                        staleRows++;
+                    } else {
+                        if (firstKept < 0) {
+                            firstKept = lineStart;
+                        }
+                        if (records.remaining() < CandleView.RECORD_SIZE) {
+                            records = grow(records);
+                        }
+                        putRow(records, text, lineStart, rowEnd, openTime);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new CorruptCandleStoreException("Unreadable row at " + lineStart + " of " + path, e);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (staleRows > MAX_STALE_ROWS) {
+            rewrite(path, firstKept < 0 ? "" : text.substring(firstKept));
+        }
+        return new CandleView(ticker, records, 0, records.position() / CandleView.RECORD_SIZE);
+    }
+
+    @Override
+    public void append(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) throws IOException {
+        long lastCloseTime = getLastCloseTime(ticker, interval);
+        Path path = getPath(ticker, interval);
+        Files.createDirectories(path.getParent());
+        truncateUnfinishedRow(path);
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Candlestick candlestick : candlesticks) {
+                if (candlestick.getCloseTime() > lastCloseTime) {
+                    write(writer, candlestick);
+                    lastCloseTime = candlestick.getCloseTime();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void replace(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) throws IOException {
+        Path path = getPath(ticker, interval);
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        long lastCloseTime = Long.MIN_VALUE;
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Candlestick candlestick : candlesticks) {
+                if (candlestick.getCloseTime() > lastCloseTime) {
+                    write(writer, candlestick);
+                    lastCloseTime = candlestick.getCloseTime();
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public long getLastCloseTime(String ticker, CandlestickInterval interval) throws IOException {
+        Path path = getPath(ticker, interval);
+        if (!Files.exists(path)) {
+            return Long.MIN_VALUE;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            String text = new String(readTail(channel), StandardCharsets.UTF_8);
+            // Only finished rows count, see read
+            text = text.substring(0, text.lastIndexOf('\n') + 1).trim();
+            if (text.isEmpty()) {
+                return Long.MIN_VALUE;
+            }
+            int column = text.lastIndexOf('\n') + 1;
+            for (int i = 0; i < 6; i++) {
+                column = field(text, column, text.length()) + 1;
+            }
+            try {
+                return DecimalParser.parseLong(text, column, field(text, column, text.length()));
+            } catch (NumberFormatException e) {
+                throw new CorruptCandleStoreException("Unreadable last row of " + path, e);
+            }
+        }
+    }
+
+    @Override
+    public List<String> listTickers(CandlestickInterval interval) throws IOException {
+        List<String> tickers = new ArrayList<>();
+        String suffix = getSuffix(interval);
+        if (!Files.isDirectory(dir)) {
+            return tickers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                tickers.add(name.substring(0, name.length() - suffix.length()));
+            }
+        }
+        Collections.sort(tickers);
+        return tickers;
+    }
+
+    @Override
+    public void delete(String ticker, CandlestickInterval interval) throws IOException {
+        Files.deleteIfExists(getPath(ticker, interval));
+    }
+
+    private void rewrite(Path path, String rows) {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.write(tmp, rows.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Unable to compact candle store " + path, e);
+        }
+    }
+
+    private Path getPath(String ticker, CandlestickInterval interval) {
+        return dir.resolve(ticker + getSuffix(interval));
+    }
+
+    private static String getSuffix(CandlestickInterval interval) {
+        return "_" + interval.getIntervalId() + ".csv";
+    }
+
+    private static void write(BufferedWriter writer, Candlestick candlestick) throws IOException {
+        writer.write(new StringBuilder()
+                .append(candlestick.getOpenTime()).append(',')
+                .append(candlestick.getOpen()).append(',')
+                .append(candlestick.getHigh()).append(',')
+                .append(candlestick.getLow()).append(',')
+                .append(candlestick.getClose()).append(',')
+                .append(candlestick.getVolume()).append(',')
+                .append(candlestick.getCloseTime()).append(',')
+                .append(candlestick.getQuoteAssetVolume()).append(',')
+                .append(candlestick.getNumberOfTrades()).append(',')
+                .append(candlestick.getTakerBuyBaseAssetVolume()).append(',')
+                .append(candlestick.getTakerBuyQuoteAssetVolume())
+                .toString());
+        writer.newLine();
+    }
+
+    /**
+     * The last {@value #TAIL_LENGTH} bytes of the file, or all of it if it is shorter.
+     */
+    private static byte[] readTail(FileChannel channel) throws IOException {
+        ByteBuffer tail = ByteBuffer.allocate((int) Math.min(channel.size(), TAIL_LENGTH));
+        long start = channel.size() - tail.capacity();
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, start + tail.position()) < 0) {
+                break;
+            }
+        }
+        return tail.array();
+    }
+
+    /**
+     * Cuts off a last row that a crash left without its line break, so the next row starts on a line of
+     * its own.
+     */
+    private static void truncateUnfinishedRow(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            byte[] tail = readTail(channel);
+            int end = tail.length;
+            while (end > 0 && tail[end - 1] != '\n') {
+                end--;
+            }
+            if (end < tail.length && (end > 0 || size == tail.length)) {
+                logger.info("Cutting off the unfinished last row of " + path);
+                channel.truncate(size - (tail.length - end));
+            }
+        }
+    }
+
+    /**
+     * Parses open, high, low, close, volume and close time of a row into a record; the other columns
+     * are skipped.
+     */
+    private static void putRow(ByteBuffer records, String text, int from, int to, long openTime) {
+        int start = field(text, from, to) + 1;
+        int end = field(text, start, to);
+        double open = DecimalParser.parseDouble(text, start, end);
+        start = end + 1;
+        end = field(text, start, to);
+        double high = DecimalParser.parseDouble(text, start, end);
+        start = end + 1;
+        end = field(text, start, to);
+        double low = DecimalParser.parseDouble(text, start, end);
+        start = end + 1;
+        end = field(text, start, to);
+        double close = DecimalParser.parseDouble(text, start, end);
+        start = end + 1;
+        end = field(text, start, to);
+        double volume = DecimalParser.parseDouble(text, start, end);
+        start = end + 1;
+        end = field(text, start, to);
+        long closeTime = DecimalParser.parseLong(text, start, end);
+        CandleView.put(records, openTime, closeTime, open, high, low, close, volume);
+    }
+
+    /**
+     * End of the field starting at {@code from}: the next comma or the end of the row.
+     */
+    private static int field(String text, int from, int to) {
+        int comma = text.indexOf(',', from);
+        return comma < 0 || comma > to ? to : comma;
+    }
+
+    private static ByteBuffer grow(ByteBuffer records) {
+        ByteBuffer grown = ByteBuffer.allocate(records.capacity() + (records.capacity() >> 1)).order(ByteOrder.LITTLE_ENDIAN);
+        records.flip();
+        return grown.put(records);
+    }
+}
@@ -0,0 +1,75 @@
+package com.naga.tradingbot.service;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Lease store in a directory shared by the nodes (local disk or a network mount). Each node owns one
+ * {@code <nodeId>.lease} file holding its expiry time, replaced atomically on every renewal, so no
+ * locking between nodes is needed. Expiry times are written with the writer's clock; the nodes'
+ * clocks should agree to well within the lease duration.
+ * <p>
+ * The directory is never created: if the share is not mounted, renewing fails instead of writing a
+ * lease only this node can see.
+ */
+public class FileLeaseStore implements LeaseStore {
+
+    private static final Logger logger = Logger.getLogger(FileLeaseStore.class);
+
+    private static final String SUFFIX = ".lease";
+
+    private final Path dir;
+
+    public FileLeaseStore(Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public void renew(String nodeId, long expiresAt) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            throw new NoSuchFileException(dir.toString(), null, "lease directory missing, is the share mounted?");
+        }
+        Path tmp = dir.resolve(nodeId + SUFFIX + ".tmp");
+        Files.write(tmp, Long.toString(expiresAt).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, dir.resolve(nodeId + SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void release(String nodeId) throws IOException {
+        Files.deleteIfExists(dir.resolve(nodeId + SUFFIX));
+    }
+
+    @Override
+    public Set<String> getLiveNodes(long now) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            throw new NoSuchFileException(dir.toString(), null, "lease directory missing, is the share mounted?");
+        }
+        Set<String> live = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long expiresAt = Long.parseLong(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+                    if (expiresAt > now) {
+                        live.add(name.substring(0, name.length() - SUFFIX.length()));
+                    }
+                } catch (NoSuchFileException e) {
+                    // Released while listing
+                } catch (NumberFormatException e) {
+                    logger.info("Ignoring unreadable lease file " + file);
+                }
+            }
+        }
+        return live;
+    }
+}
@@ -1,71 +1,110 @@
-/*
 package com.naga.tradingbot.service;
 
-import org.quartz.*;
+import org.apache.log4j.Logger;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
+/**
+ * Schedules the poll mode on the Quartz scheduler. The full scan fires on {@code trading.bot.cron},
+ * by default a few seconds after every hourly candle closes, and tickers listed in
+ * {@code trading.bot.scheduledTickers} that have a {@code trading.bot.<TICKER>.cron} run on their own
+ * schedule through {@link BotExecuteEachCoinJob} instead. Those are scheduled on every node and check
+ * ownership when they fire, as the shard of a ticker can move while the bot runs. Both jobs disallow
+ * concurrent execution, so a slow scan delays the next firing rather than overlapping it.
+ */
 @Service
 public class JobScheduler {
 
+    private static final Logger logger = Logger.getLogger(JobScheduler.class);
+
     @Autowired
     private Environment env;
 
     @Autowired
     private Scheduler quartzScheduler;
 
-    @PostConstruct
-    public void scheduleIndividualCoins() throws SchedulerException {
-        if (!env.getProperty("developmentMode", String.class).equals("true")) {
-            for (String ticker : env.getProperty("trading.bot.scheduledTickers", String.class).split(",")) {
-                String cron = env.getProperty("trading.bot." + ticker + ".cron", String.class);
-                if (!StringUtils.isEmpty(cron)) {
-                    JobDetail jobDetail = JobBuilder.newJob(BotExecuteEachCoinJob.class)
-                            .withIdentity("BotExecuteEachCoinJob.class" + "_" + ticker, "BotExecuteEachCoinJob.class" + "_" + ticker + "_Group")
-                            .usingJobData("ticker", ticker)
-                            .build();
-                    Trigger trigger = TriggerBuilder.newTrigger().withIdentity("BotExecuteEachCoinJob.class" + "_" + ticker, "BotExecuteEachCoinJob.class" + "_" + ticker + "_Group")
-                            .withSchedule(CronScheduleBuilder.cronSchedule(cron)).build();
-                    try {
-                        quartzScheduler.scheduleJob(jobDetail, trigger);
-                    } catch (ObjectAlreadyExistsException e) {
-                        quartzScheduler.deleteJob(jobDetail.getKey());
-                        quartzScheduler.scheduleJob(jobDetail, trigger);
-                    }
-                }
-            }
-            if (!quartzScheduler.isStarted()) {
-                quartzScheduler.start();
-            }
+    @Value("${trading.bot.cron:5 0 * * * ?}")
+    private String cron;
+
+    /**
+     * Runs a full scan right after scheduling instead of waiting for the next candle close.
+     */
+    @Value("${trading.bot.schedule.runOnStart:true}")
+    private boolean runOnStart;
+
+    private final Set<String> individuallyScheduled = new LinkedHashSet<>();
+
+    public void start() throws SchedulerException {
+        scheduleIndividualCoins();
+        scheduleAllCoins();
+        if (!quartzScheduler.isStarted()) {
+            quartzScheduler.start();
         }
     }
 
-    @PostConstruct
-    public void scheduleAllCoins() throws SchedulerException {
-        if (!env.getProperty("developmentMode", String.class).equals("true")) {
-            String cron = env.getProperty("trading.bot.cron", String.class);
-            if (!StringUtils.isEmpty(cron)) {
-                JobDetail jobDetail = JobBuilder.newJob(BotExecuteJob.class)
-                        .withIdentity("BotExecuteJob.class", "BotExecuteJob.class_Group")
-                        .build();
-                Trigger trigger = TriggerBuilder.newTrigger()
-                        .withIdentity("BotExecuteJob.class", "BotExecuteJob.class_Group")
-                        .withSchedule(CronScheduleBuilder.cronSchedule(cron)).build();
-                try {
-                    quartzScheduler.scheduleJob(jobDetail, trigger);
-                } catch (ObjectAlreadyExistsException e) {
-                    quartzScheduler.deleteJob(jobDetail.getKey());
-                    quartzScheduler.scheduleJob(jobDetail, trigger);
-                }
+    /**
+     * Tickers that run on their own cron and are therefore left out of the full scan.
+     */
+    public Set<String> getIndividuallyScheduled() {
+        return individuallyScheduled;
+    }
+
+    private void scheduleIndividualCoins() throws SchedulerException {
+        String tickers = env.getProperty("trading.bot.scheduledTickers", String.class);
+        if (StringUtils.isEmpty(tickers)) {
+            return;
+        }
+        for (String ticker : StringUtils.commaDelimitedListToStringArray(tickers.replace(" ", ""))) {
+            String tickerCron = env.getProperty("trading.bot." + ticker + ".cron", String.class);
+            if (StringUtils.isEmpty(tickerCron)) {
+                continue;
             }
+            JobDetail jobDetail = JobBuilder.newJob(BotExecuteEachCoinJob.class)
+                    .withIdentity("BotExecuteEachCoinJob.class" + "_" + ticker, "BotExecuteEachCoinJob.class" + "_" + ticker + "_Group")
+                    .usingJobData("ticker", ticker)
+                    .build();
+            Trigger trigger = TriggerBuilder.newTrigger()
+                    .withIdentity("BotExecuteEachCoinJob.class" + "_" + ticker, "BotExecuteEachCoinJob.class" + "_" + ticker + "_Group")
+                    .withSchedule(CronScheduleBuilder.cronSchedule(tickerCron)).build();
+            schedule(jobDetail, trigger);
+            individuallyScheduled.add(ticker);
+            logger.info("Scheduled " + ticker + " on its own cron " + tickerCron);
         }
-        if (!quartzScheduler.isStarted()) {
-            quartzScheduler.start();
+    }
+
+    private void scheduleAllCoins() throws SchedulerException {
+        JobDetail jobDetail = JobBuilder.newJob(BotExecuteJob.class)
+                .withIdentity("BotExecuteJob.class", "BotExecuteJob.class_Group")
+                .storeDurably()
+                .build();
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity("BotExecuteJob.class", "BotExecuteJob.class_Group")
+                .withSchedule(CronScheduleBuilder.cronSchedule(cron)).build();
+        Date firstRun = schedule(jobDetail, trigger);
+        logger.info("Scheduled the full scan on cron " + cron + ", next run at " + firstRun);
+        if (runOnStart) {
+            quartzScheduler.triggerJob(jobDetail.getKey());
+        }
+    }
+
+    private Date schedule(JobDetail jobDetail, Trigger trigger) throws SchedulerException {
+        if (quartzScheduler.checkExists(jobDetail.getKey())) {
+            quartzScheduler.deleteJob(jobDetail.getKey());
         }
+        return quartzScheduler.scheduleJob(jobDetail, trigger);
     }
 }
-*/
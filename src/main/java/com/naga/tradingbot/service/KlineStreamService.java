@@ -0,0 +1,203 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.event.CandlestickEvent;
+import com.binance.api.client.domain.market.Candlestick;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.model.data.PredictionEngine;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Event driven mode: subscribes to the hourly kline streams of the traded symbols, appends every
+ * closed candle to the {@link CandleStore} and re-evaluates the signal of that symbol only. Replaces
+ * the 30 minute REST polling when {@code trading.bot.mode} is {@code stream}.
+ */
+@Service
+public class KlineStreamService {
+
+    private static final Logger logger = Logger.getLogger(KlineStreamService.class);
+
+    private static final CandlestickInterval INTERVAL = CandlestickInterval.HOURLY;
+
+    @Autowired
+    private BotEngine botEngine;
+
+    @Autowired
+    private CandleStore candleStore;
+
+    @Autowired
+    private SymbolLocks symbolLocks;
+
+    @Autowired
+    private ShardAssigner shardAssigner;
+
+    @Value("${developmentMode}")
+    private boolean developmentMode;
+
+    /**
+     * binance for the Binance WebSocket API, local for the offline {@link LocalCandleStreamSource}.
+     */
+    @Value("${trading.bot.stream.source:binance}")
+    private String streamSource;
+
+    @Value("${trading.bot.scan.threads:1}")
+    private int workerThreads;
+
+    private final Set<String> streamedTickers = ConcurrentHashMap.newKeySet();
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private CandleStreamSource candleStreamSource;
+
+    private ExecutorService workers;
+
+    private Closeable subscription;
+
+    /**
+     * Brings the stored candles of the symbols up to date and subscribes to their kline streams.
+     */
+    public synchronized void start(List<String> tickers) {
+        candleStreamSource = isLocal() ? new LocalCandleStreamSource() : new BinanceCandleStreamSource();
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(workerThreads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "kline-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String ticker : tickers) {
+            if (!isLocal()) {
+                fetchMissedCandles(ticker);
+            }
+            streamedTickers.add(ticker);
+        }
+        subscription = candleStreamSource.subscribe(tickers, INTERVAL, this::onEvent);
+        logger.info("Subscribed to " + INTERVAL.getIntervalId() + " kline streams of " + tickers.size()
+                + " symbols from " + streamSource);
+    }
+
+    /**
+     * The stream source in use; a {@link LocalCandleStreamSource} when running offline.
+     */
+    public CandleStreamSource getCandleStreamSource() {
+        return candleStreamSource;
+    }
+
+    /**
+     * Blocks until the service is stopped.
+     */
+    public void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        try {
+            if (subscription != null) {
+                subscription.close();
+            }
+        } catch (IOException e) {
+            logger.error("Unable to close kline streams", e);
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        stopped.countDown();
+    }
+
+    private void onEvent(CandlestickEvent event) {
+        if (Boolean.TRUE.equals(event.getBarFinal()) && streamedTickers.contains(event.getSymbol())) {
+            workers.submit(() -> onCandleClosed(event.getSymbol(), toCandlestick(event)));
+        }
+    }
+
+    private void onCandleClosed(String ticker, Candlestick closed) {
+        ReentrantLock lock = symbolLocks.get(ticker);
+        lock.lock();
+        try {
+            long lastCloseTime = candleStore.getLastCloseTime(ticker, INTERVAL);
+            if (closed.getCloseTime() <= lastCloseTime) {
+                return;
+            }
+            if (lastCloseTime != Long.MIN_VALUE && closed.getOpenTime() > lastCloseTime + 1 && !isLocal()) {
+                // Candles were missed (e.g. while reconnecting), catch up through REST
+                logger.info("Gap in " + ticker + " kline stream, fetching the missed candles");
+                fetchMissedCandles(ticker);
+            } else {
+                candleStore.append(ticker, INTERVAL, Collections.singletonList(closed));
+            }
+            // Candles are stored for every symbol so a node can take over a dead node's symbols at once
+            if (!shardAssigner.owns(ticker)) {
+                return;
+            }
+            CandleView candles = candleStore.view(ticker, INTERVAL, getWindowStart());
+            if (candles.size() == 0) {
+                return;
+            }
+            PredictionEngine predictionEngine = botEngine.predictTrendAndDecide(ticker, candles);
+            if (developmentMode && isLocal()) {
+                logger.info(ticker + " signal: " + predictionEngine.getTradeSignal());
+                return;
+            }
+            botEngine.tradeBasedOnSignal(ticker, predictionEngine);
+        } catch (Exception e) {
+            logger.error("There was an error while handling a closed " + ticker + " candle", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fetches the candles that closed since the last stored one through REST. The stream delivers
+     * closed candles only, so the live candle is not used.
+     */
+    private void fetchMissedCandles(String ticker) {
+        try {
+            botEngine.fetchNewCandles(ticker, getWindowStart());
+        } catch (Exception e) {
+            logger.error("Unable to fetch the missed candles of " + ticker, e);
+        }
+    }
+
+    private boolean isLocal() {
+        return "local".equalsIgnoreCase(streamSource);
+    }
+
+    private static long getWindowStart() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MONTH, -12);
+        return calendar.getTimeInMillis();
+    }
+
+    private static Candlestick toCandlestick(CandlestickEvent event) {
+        Candlestick candlestick = new Candlestick();
+        candlestick.setOpenTime(event.getOpenTime());
+        candlestick.setOpen(event.getOpen());
+        candlestick.setHigh(event.getHigh());
+        candlestick.setLow(event.getLow());
+        candlestick.setClose(event.getClose());
+        candlestick.setVolume(event.getVolume());
+        candlestick.setCloseTime(event.getCloseTime());
+        candlestick.setQuoteAssetVolume(event.getQuoteAssetVolume());
+        candlestick.setNumberOfTrades(event.getNumberOfTrades());
+        candlestick.setTakerBuyBaseAssetVolume(event.getTakerBuyBaseAssetVolume());
+        candlestick.setTakerBuyQuoteAssetVolume(event.getTakerBuyQuoteAssetVolume());
+        return candlestick;
+    }
+}
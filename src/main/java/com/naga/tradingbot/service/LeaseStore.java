@@ -0,0 +1,26 @@
+package com.naga.tradingbot.service;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Shared record of which bot nodes are alive. Every node renews its lease periodically; a node whose
+ * lease expired is considered dead and its symbols move to the remaining nodes.
+ */
+public interface LeaseStore {
+
+    /**
+     * Creates or extends the lease of the node until {@code expiresAt} (epoch millis).
+     */
+    void renew(String nodeId, long expiresAt) throws IOException;
+
+    /**
+     * Removes the lease of the node, e.g. on a clean shutdown, so others take over right away.
+     */
+    void release(String nodeId) throws IOException;
+
+    /**
+     * Nodes whose lease has not expired at {@code now}.
+     */
+    Set<String> getLiveNodes(long now) throws IOException;
+}
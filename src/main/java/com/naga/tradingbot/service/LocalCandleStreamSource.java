@@ -0,0 +1,76 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.event.CandlestickEvent;
+import com.binance.api.client.domain.market.Candlestick;
+import com.binance.api.client.domain.market.CandlestickInterval;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Offline stand-in for the Binance kline stream. Events are pushed with {@link #publish} or
+ * {@link #publishClosed}, e.g. to replay stored candles through the streaming mode without network.
+ */
+public class LocalCandleStreamSource implements CandleStreamSource {
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Closeable subscribe(List<String> symbols, CandlestickInterval interval, Consumer<CandlestickEvent> listener) {
+        Subscription subscription = new Subscription(symbols, interval, listener);
+        subscriptions.add(subscription);
+        return () -> subscriptions.remove(subscription);
+    }
+
+    /**
+     * Delivers an event to every subscription of its symbol and interval.
+     */
+    public void publish(CandlestickEvent event) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.symbols.contains(event.getSymbol())
+                    && subscription.interval.getIntervalId().equals(event.getIntervalId())) {
+                subscription.listener.accept(event);
+            }
+        }
+    }
+
+    /**
+     * Delivers the final event of a closed candle.
+     */
+    public void publishClosed(String symbol, CandlestickInterval interval, Candlestick candlestick) {
+        CandlestickEvent event = new CandlestickEvent();
+        event.setEventType("kline");
+        event.setEventTime(candlestick.getCloseTime());
+        event.setSymbol(symbol);
+        event.setIntervalId(interval.getIntervalId());
+        event.setOpenTime(candlestick.getOpenTime());
+        event.setOpen(candlestick.getOpen());
+        event.setHigh(candlestick.getHigh());
+        event.setLow(candlestick.getLow());
+        event.setClose(candlestick.getClose());
+        event.setVolume(candlestick.getVolume());
+        event.setCloseTime(candlestick.getCloseTime());
+        event.setQuoteAssetVolume(candlestick.getQuoteAssetVolume());
+        event.setNumberOfTrades(candlestick.getNumberOfTrades());
+        event.setTakerBuyBaseAssetVolume(candlestick.getTakerBuyBaseAssetVolume());
+        event.setTakerBuyQuoteAssetVolume(candlestick.getTakerBuyQuoteAssetVolume());
+        event.setBarFinal(Boolean.TRUE);
+        publish(event);
+    }
+
+    private static class Subscription {
+        private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+        private final CandlestickInterval interval;
+        private final Consumer<CandlestickEvent> listener;
+
+        private Subscription(List<String> symbols, CandlestickInterval interval, Consumer<CandlestickEvent> listener) {
+            this.symbols.addAll(symbols);
+            this.interval = interval;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.naga.tradingbot.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stand-in for a shared lease store, for nodes running in one JVM or offline.
+ */
+public class LocalLeaseStore implements LeaseStore {
+
+    private final Map<String, Long> leases = new ConcurrentHashMap<>();
+
+    @Override
+    public void renew(String nodeId, long expiresAt) {
+        leases.put(nodeId, expiresAt);
+    }
+
+    @Override
+    public void release(String nodeId) {
+        leases.remove(nodeId);
+    }
+
+    @Override
+    public Set<String> getLiveNodes(long now) {
+        Set<String> live = new TreeSet<>();
+        leases.forEach((nodeId, expiresAt) -> {
+            if (expiresAt > now) {
+                live.add(nodeId);
+            }
+        });
+        return live;
+    }
+}
@@ -0,0 +1,35 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.OrderStatus;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Offline stand-in for the Binance user data stream. Order updates are pushed with {@link #publish}.
+ */
+public class LocalOrderEventSource implements OrderEventSource {
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Closeable subscribe(Listener listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    /**
+     * Delivers an order update to every listener.
+     */
+    public void publish(String symbol, long orderId, OrderStatus status) {
+        for (Listener listener : listeners) {
+            listener.onOrderUpdate(symbol, orderId, status);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.market.Candlestick;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.model.data.CandleView;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Candles as fixed-width binary records, read through a read-only memory mapping of the file. A read
+ * returns a {@link CandleView} on the mapping, so range scans come from the page cache and cost no heap
+ * however long the history is. The views stay valid while the file grows because records are only
+ * ever appended.
+ * <p>
+ * A file is a {@value #HEADER_SIZE} byte header (magic, version, record size, record count) followed by
+ * {@link CandleView#RECORD_SIZE} byte records in open time order. Files grow by
+ * {@value #CHUNK_RECORDS} records at a time and the mapping covers the whole file, so appends land in
+ * space that is already mapped and a read only maps the file again when a chunk fills up. The count is
+ * written after the records, so records cut short by a crash while appending are ignored and
+ * overwritten by the next append. Version 1 files, without a count, are read by their size. This
+ * process must be the only writer.
+ */
+public class MappedCandleStorage implements CandleStorage {
+
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * "CNDL" as a little-endian int.
+     */
+    private static final int MAGIC = 0x4C444E43;
+
+    private static final int VERSION = 2;
+
+    /**
+     * Records files grow by, about six weeks of hourly candles.
+     */
+    private static final int CHUNK_RECORDS = 1024;
+
+    private final Path dir;
+
+    private final Map<String, Archive> archives = new ConcurrentHashMap<>();
+
+    public MappedCandleStorage(Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public CandleView read(String ticker, CandlestickInterval interval, long windowStart) throws IOException {
+        Archive archive = open(ticker, interval);
+        synchronized (archive) {
+            if (archive.count == 0) {
+                return CandleView.empty(ticker);
+            }
+            long size = HEADER_SIZE + (long) archive.count * CandleView.RECORD_SIZE;
+            if (archive.map == null || archive.map.capacity() < size) {
+                // Appends outgrew the mapping; map the file up to its new capacity
+                try (FileChannel channel = FileChannel.open(archive.path, StandardOpenOption.READ)) {
+                    archive.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+            return new CandleView(ticker, archive.map, HEADER_SIZE, archive.count).from(windowStart);
+        }
+    }
+
+    @Override
+    public void append(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) throws IOException {
+        Archive archive = open(ticker, interval);
+        synchronized (archive) {
+            ByteBuffer records = ByteBuffer.allocate(candlesticks.size() * CandleView.RECORD_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long lastCloseTime = archive.lastCloseTime;
+            for (Candlestick candlestick : candlesticks) {
+                if (candlestick.getCloseTime() > lastCloseTime) {
+                    CandleView.put(records, candlestick);
+                    lastCloseTime = candlestick.getCloseTime();
+                }
+            }
+            if (records.position() == 0) {
+                return;
+            }
+            records.flip();
+            int count = archive.count + records.limit() / CandleView.RECORD_SIZE;
+            long capacity = getCapacity(archive, count);
+            Files.createDirectories(archive.path.getParent());
+            try (FileChannel channel = FileChannel.open(archive.path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                if (channel.size() < capacity) {
+                    // Grow by whole chunks; the file is sparse until the records are written
+                    writeFully(channel, ByteBuffer.allocate(1), capacity - 1);
+                }
+                writeFully(channel, records, HEADER_SIZE + (long) archive.count * CandleView.RECORD_SIZE);
+                writeFully(channel, header(count), 0);
+            }
+            archive.count = count;
+            archive.lastCloseTime = lastCloseTime;
+        }
+    }
+
+    @Override
+    public void replace(String ticker, CandlestickInterval interval, List<Candlestick> candlesticks) throws IOException {
+        Archive archive = open(ticker, interval);
+        synchronized (archive) {
+            ByteBuffer records = ByteBuffer.allocate(candlesticks.size() * CandleView.RECORD_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long lastCloseTime = Long.MIN_VALUE;
+            for (Candlestick candlestick : candlesticks) {
+                if (candlestick.getCloseTime() > lastCloseTime) {
+                    CandleView.put(records, candlestick);
+                    lastCloseTime = candlestick.getCloseTime();
+                }
+            }
+            records.flip();
+            int count = records.limit() / CandleView.RECORD_SIZE;
+            long capacity = getCapacity(archive, count);
+            Path dir = archive.path.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(archive.path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, ByteBuffer.allocate(1), capacity - 1);
+                writeFully(channel, records, HEADER_SIZE);
+                writeFully(channel, header(count), 0);
+            }
+            Files.move(tmp, archive.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Views handed out earlier keep the mapping of the old file
+            archive.map = null;
+            archive.count = count;
+            archive.lastCloseTime = lastCloseTime;
+        }
+    }
+
+    @Override
+    public long getLastCloseTime(String ticker, CandlestickInterval interval) throws IOException {
+        Archive archive = open(ticker, interval);
+        synchronized (archive) {
+            return archive.lastCloseTime;
+        }
+    }
+
+    @Override
+    public List<String> listTickers(CandlestickInterval interval) throws IOException {
+        List<String> tickers = new ArrayList<>();
+        String suffix = getSuffix(interval);
+        if (!Files.isDirectory(dir)) {
+            return tickers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                tickers.add(name.substring(0, name.length() - suffix.length()));
+            }
+        }
+        Collections.sort(tickers);
+        return tickers;
+    }
+
+    @Override
+    public void delete(String ticker, CandlestickInterval interval) throws IOException {
+        Archive archive = archives.remove(ticker + getSuffix(interval));
+        Files.deleteIfExists(archive == null ? getPath(ticker, interval) : archive.path);
+    }
+
+    /**
+     * The archive of the symbol, with its header checked and its record count read on first use.
+     */
+    private Archive open(String ticker, CandlestickInterval interval) throws IOException {
+        Archive archive = archives.computeIfAbsent(ticker + getSuffix(interval),
+                key -> new Archive(getPath(ticker, interval)));
+        synchronized (archive) {
+            if (!archive.opened) {
+                if (Files.exists(archive.path)) {
+                    try (FileChannel channel = FileChannel.open(archive.path, StandardOpenOption.READ)) {
+                        readHeader(archive, channel);
+                    }
+                }
+                archive.opened = true;
+            }
+        }
+        return archive;
+    }
+
+    private static void readHeader(Archive archive, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (size < HEADER_SIZE || channel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC
+                || (header.getInt(4) != 1 && header.getInt(4) != VERSION) || header.getInt(8) != CandleView.RECORD_SIZE) {
+            throw new CorruptCandleStoreException("Not a version " + VERSION + " candle archive: " + archive.path);
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Candle archive too large to map: " + archive.path);
+        }
+        long count = (size - HEADER_SIZE) / CandleView.RECORD_SIZE;
+        if (header.getInt(4) == VERSION) {
+            // Past the count is unused capacity or a torn append
+            count = Math.min(count, Math.max(header.getInt(12), 0));
+        }
+        archive.count = (int) count;
+        if (count > 0) {
+            ByteBuffer last = ByteBuffer.allocate(CandleView.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(last, HEADER_SIZE + (count - 1) * CandleView.RECORD_SIZE);
+            archive.lastCloseTime = last.getLong(8);
+        }
+    }
+
+    /**
+     * File size for the count rounded up to whole chunks.
+     */
+    private static long getCapacity(Archive archive, int count) throws IOException {
+        long capacity = HEADER_SIZE
+                + (long) (count + CHUNK_RECORDS - 1) / CHUNK_RECORDS * CHUNK_RECORDS * CandleView.RECORD_SIZE;
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Candle archive too large to map: " + archive.path);
+        }
+        return capacity;
+    }
+
+    private static ByteBuffer header(int count) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(CandleView.RECORD_SIZE).putInt(count);
+        header.flip();
+        return header;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private Path getPath(String ticker, CandlestickInterval interval) {
+        return dir.resolve(ticker + getSuffix(interval));
+    }
+
+    private static String getSuffix(CandlestickInterval interval) {
+        return "_" + interval.getIntervalId() + ".bin";
+    }
+
+    /**
+     * State of one file, guarded by its own lock.
+     */
+    private static class Archive {
+        private final Path path;
+        private boolean opened;
+        private int count;
+        private long lastCloseTime = Long.MIN_VALUE;
+        private MappedByteBuffer map;
+
+        private Archive(Path path) {
+            this.path = path;
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.naga.tradingbot.service;
 
-import com.binance.api.client.domain.market.Candlestick;
+import com.naga.tradingbot.metrics.MetricsRegistry;
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.model.data.SmaWindow;
+import com.naga.tradingbot.utils.Downsampler;
 import com.naga.tradingbot.utils.LoggerUtil;
 import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartPanel;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.DateAxis;
@@ -15,13 +17,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.awt.*;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A demo showing a high-low-open-close chart with a moving average overlaid on top.
@@ -38,67 +44,107 @@ public class MovingAverageChartHelper {
     @Value("${trading.bot.strategy}")
     private String maStrategy;
 
+    @Value("${trading.bot.chart.width:1000}")
+    private int chartWidth;
+
+    @Value("${trading.bot.chart.height:700}")
+    private int chartHeight;
+
+    /**
+     * Points plotted per series; longer series are downsampled after the averages are computed.
+     * 0 plots every candle.
+     */
+    @Value("${trading.bot.chart.maxPoints:1000}")
+    private int chartMaxPoints;
+
     @Autowired
     private LoggerUtil loggerUtil;
 
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    private final ThreadPoolExecutor chartExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), runnable -> {
+        Thread thread = new Thread(runnable, "chart-sender");
+        thread.setDaemon(true);
+        return thread;
+    }, new ThreadPoolExecutor.DiscardOldestPolicy());
+
     /**
-     * A demonstration application showing a high-low-open-close chart.
+     * Builds the price and SMA chart of a ticker. Only called when the chart is sent to Telegram.
      *
-     * @param candlesticks
+     * @param series
      */
-    public JFreeChart getChart(String ticker, List<Candlestick> candlesticks) {
-
-        final JFreeChart chart = createChart(ticker, candlesticks);
-        final ChartPanel chartPanel = new ChartPanel(chart);
+    public JFreeChart getChart(String ticker, CandleView series) {
+        return createChart(ticker, series);
+    }
 
-        return chart;
+    /**
+     * Renders the chart and sends it to the ticker's Telegram chat on the chart thread, so the caller
+     * is not held up by image work. Charts still waiting when the queue is full are dropped, oldest first.
+     * Views never change, so the candles are read on the chart thread.
+     */
+    public void sendTelegramMessage(String ticker, CandleView series) {
+        chartExecutor.execute(() -> {
+            try {
+                byte[] photo = metricsRegistry.time("chart.render", () -> encodeChart(getChart(ticker, series)));
+                if (!loggerUtil.sendPhoto(ticker, photo)) {
+                    loggerUtil.info("Telegram did not accept the chart of " + ticker);
+                }
+            } catch (Exception e) {
+                loggerUtil.error("Unable to send the chart of " + ticker, e);
+            }
+        });
     }
 
-    public boolean sendTelegramMessage(String ticker, JFreeChart chart) throws Exception {
-        try {
-            ChartUtils.saveChartAsJPEG(new File(ticker + "_SMA_Chart.jpeg"), chart, 2000, 2000);
-        } catch (IOException e) {
-            throw new Exception(e);
-        }
-        return loggerUtil.sendPhoto(ticker, new File(ticker + "_SMA_Chart.jpeg"));
+    /**
+     * Encodes the chart as JPEG in memory at the configured size.
+     */
+    public byte[] encodeChart(JFreeChart chart) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        ChartUtils.writeChartAsJPEG(out, chart, chartWidth, chartHeight);
+        return out.toByteArray();
     }
 
+    @PreDestroy
+    public void shutdown() {
+        chartExecutor.shutdownNow();
+    }
 
-    public TimeSeries createTimeSeries(String ticker, List<Candlestick> candlesticks) {
-        TimeSeries timeSeries = new TimeSeries(ticker);
 
-        for (Candlestick candlestick : candlesticks) {
-            RegularTimePeriod regularTimePeriod = RegularTimePeriod.createInstance(Hour.class, new Date(candlestick.getCloseTime()), TimeZone.getTimeZone("UTC"), Locale.ENGLISH);
-            timeSeries.addOrUpdate(new TimeSeriesDataItem(regularTimePeriod, Double.parseDouble(candlestick.getClose())));
-        }
-        return timeSeries;
+    public TimeSeries createTimeSeries(String ticker, CandleView series) {
+        int size = series.size();
+        long[] closeTimes = new long[size];
+        double[] closes = new double[size];
+        readCloses(series, closeTimes, closes);
+        return toTimeSeries(ticker, closeTimes, closes, size);
     }
 
     /**
      * Creates a sample chart.
      *
-     * @param candlesticks
+     * @param series
      * @return a sample chart.
      */
-    private JFreeChart createChart(String ticker, List<Candlestick> candlesticks) {
+    private JFreeChart createChart(String ticker, CandleView series) {
+        int size = series.size();
+        long[] closeTimes = new long[size];
 
         //current price
-        TimeSeries dataset1 = createTimeSeries(ticker, candlesticks);
+        double[] closes = new double[size];
+        readCloses(series, closeTimes, closes);
 
         //7SMA
-        final TimeSeries dataset2 = MovingAverage.createMovingAverage(
-                dataset1, shortTermMA + maStrategy, shortTermMA * 24, 0
-        );
+        double[] shortAverages = movingAverage(closes, size, shortTermMA * 24);
 
         //20SMA
-        final TimeSeries dataset3 = MovingAverage.createMovingAverage(
-                dataset1, longTermMA + maStrategy, longTermMA * 24, 0
-        );
+        double[] longAverages = movingAverage(closes, size, longTermMA * 24);
 
+        //Averages use every candle, only the plotted points are reduced
         TimeSeriesCollection timeSeriesCollection = new TimeSeriesCollection();
-        timeSeriesCollection.addSeries(dataset1);
-        timeSeriesCollection.addSeries(dataset2);
-        timeSeriesCollection.addSeries(dataset3);
+        timeSeriesCollection.addSeries(downsample(ticker, closeTimes, closes, size));
+        timeSeriesCollection.addSeries(downsample(shortTermMA + maStrategy, closeTimes, shortAverages, size));
+        timeSeriesCollection.addSeries(downsample(longTermMA + maStrategy, closeTimes, longAverages, size));
 
         final JFreeChart chart = ChartFactory.createTimeSeriesChart(
                 ticker + " Time Series",
@@ -135,4 +181,56 @@ public class MovingAverageChartHelper {
         return chart;
 
     }
+
+    /**
+     * Moving average of the hourly closes with a running window, O(n) instead of the O(n * period)
+     * of JFreeChart's MovingAverage. Like it, the first points average all values seen so far.
+     */
+    private static double[] movingAverage(double[] values, int size, int period) {
+        double[] averages = new double[size];
+        SmaWindow window = new SmaWindow(period);
+        for (int i = 0; i < size; i++) {
+            window.add(values[i]);
+            averages[i] = window.getAverage();
+        }
+        return averages;
+    }
+
+    /**
+     * Reduces the points to at most chartMaxPoints with LTTB before any TimeSeries item is created.
+     */
+    private TimeSeries downsample(String name, long[] times, double[] values, int size) {
+        if (chartMaxPoints <= 0 || size <= chartMaxPoints) {
+            return toTimeSeries(name, times, values, size);
+        }
+        double[] x = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = times[i];
+        }
+        int[] kept = Downsampler.largestTriangleThreeBuckets(x, Arrays.copyOf(values, size), chartMaxPoints);
+        long[] keptTimes = new long[kept.length];
+        double[] keptValues = new double[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            keptTimes[i] = times[kept[i]];
+            keptValues[i] = values[kept[i]];
+        }
+        return toTimeSeries(name, keptTimes, keptValues, kept.length);
+    }
+
+    private static void readCloses(CandleView series, long[] closeTimes, double[] closes) {
+        for (int i = 0; i < closes.length; i++) {
+            closeTimes[i] = series.getCloseTime(i);
+            closes[i] = series.getClose(i);
+        }
+    }
+
+    private static TimeSeries toTimeSeries(String name, long[] times, double[] values, int size) {
+        TimeSeries timeSeries = new TimeSeries(name);
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        for (int i = 0; i < size; i++) {
+            RegularTimePeriod regularTimePeriod = new Hour(new Date(times[i]), utc, Locale.ENGLISH);
+            timeSeries.addOrUpdate(new TimeSeriesDataItem(regularTimePeriod, values[i]));
+        }
+        return timeSeries;
+    }
 }
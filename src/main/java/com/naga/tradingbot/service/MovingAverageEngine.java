@@ -0,0 +1,82 @@
+package com.naga.tradingbot.service;
+
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.model.data.IndicatorState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental short/long SMA engine. Keeps an {@link IndicatorState} per symbol so every cycle only
+ * adds the candles that closed since the previous one instead of recomputing the whole history.
+ */
+@Service
+public class MovingAverageEngine {
+
+    @Value("${trading.bot.shortTermMA}")
+    private Integer shortTermMA;
+
+    @Value("${trading.bot.longTermMA}")
+    private Integer longTermMA;
+
+    private final Map<String, IndicatorState> states = new ConcurrentHashMap<>();
+
+    public int getShortTermPeriod() {
+        return shortTermMA * 24;
+    }
+
+    public int getLongTermPeriod() {
+        return longTermMA * 24;
+    }
+
+    /**
+     * A state with empty windows of the configured periods.
+     */
+    public IndicatorState newState() {
+        return new IndicatorState(getShortTermPeriod(), getLongTermPeriod());
+    }
+
+    /**
+     * States of all symbols evaluated so far, for the {@link WarmStartSnapshot}.
+     */
+    public Map<String, IndicatorState> getStates() {
+        return Collections.unmodifiableMap(states);
+    }
+
+    /**
+     * Installs a state restored by the {@link WarmStartSnapshot}.
+     */
+    public void restore(String ticker, IndicatorState state) {
+        states.put(ticker, state);
+    }
+
+    /**
+     * Brings the state of a symbol up to date with the given candles and evaluates both averages.
+     * Every candle but the last one is treated as closed; the last one provides the live price.
+     *
+     * @param ticker symbol, e.g. BTCUSDT
+     * @param series candles in open time order
+     * @return the updated state, or null if there are no candles
+     */
+    public IndicatorState update(String ticker, CandleView series) {
+        int size = series.size();
+        if (size == 0) {
+            return null;
+        }
+        IndicatorState state = states.computeIfAbsent(ticker, key -> newState());
+        int last = size - 1;
+        // Walk back to the first candle that is not in the windows yet
+        int first = last;
+        while (first > 0 && series.getCloseTime(first - 1) > state.getLastCloseTime()) {
+            first--;
+        }
+        for (int i = first; i < last; i++) {
+            state.addClosed(series.getCloseTime(i), series.getClose(i));
+        }
+        state.evaluate(series.getClose(last));
+        return state;
+    }
+}
@@ -0,0 +1,28 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.OrderStatus;
+
+import java.io.Closeable;
+
+/**
+ * Source of status updates of the account's orders.
+ */
+public interface OrderEventSource {
+
+    /**
+     * Starts delivering order updates to the listener.
+     *
+     * @return handle that stops the updates
+     */
+    Closeable subscribe(Listener listener);
+
+    /**
+     * False while updates may be missed, e.g. when the stream is reconnecting. Callers then fall back
+     * to polling.
+     */
+    boolean isConnected();
+
+    interface Listener {
+        void onOrderUpdate(String symbol, long orderId, OrderStatus status);
+    }
+}
@@ -0,0 +1,280 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.OrderSide;
+import com.binance.api.client.domain.OrderStatus;
+import com.binance.api.client.domain.account.Order;
+import com.binance.api.client.domain.account.request.OrderRequest;
+import com.binance.api.client.domain.account.request.OrderStatusRequest;
+import com.naga.tradingbot.model.data.TrackedOrder;
+import com.naga.tradingbot.utils.LoggerUtil;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Follows the orders the bot submits without blocking the scan. Updates come from the user data
+ * stream; while it is not connected, open orders are polled in batches instead. A callback runs on
+ * fill so the caller can react (e.g. buy back after a sell) without waiting for it. Callbacks run on
+ * their own worker threads, so a slow one or a busy symbol never holds up the other updates.
+ */
+@Service
+public class OrderTracker {
+
+    private static final Logger logger = Logger.getLogger(OrderTracker.class);
+
+    /**
+     * Above this many tracked symbols one all-symbol openOrders call is cheaper than one per symbol.
+     */
+    private static final int ALL_SYMBOLS_POLL_THRESHOLD =
+            BinanceEndpoint.ALL_OPEN_ORDERS.getWeight() / BinanceEndpoint.OPEN_ORDERS.getWeight();
+
+    /**
+     * Wait before trying a fill callback again whose symbol is being processed.
+     */
+    private static final long FILL_RETRY_MILLIS = 1000;
+
+    @Autowired
+    private BotEngine botEngine;
+
+    @Autowired
+    private AccountSnapshotService accountSnapshotService;
+
+    @Autowired
+    private SymbolLocks symbolLocks;
+
+    @Autowired
+    private LoggerUtil loggerUtil;
+
+    /**
+     * stream for the Binance user data stream, poll for polling only, local for the offline
+     * {@link LocalOrderEventSource}.
+     */
+    @Value("${trading.bot.orders.source:stream}")
+    private String orderSource;
+
+    @Value("${trading.bot.orders.pollSeconds:30}")
+    private long pollSeconds;
+
+    @Value("${trading.bot.orders.timeoutHours:24}")
+    private long timeoutHours;
+
+    @Value("${trading.bot.orders.fillThreads:2}")
+    private int fillThreads;
+
+    private final Map<Long, TrackedOrder> trackedOrders = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    private ExecutorService fillWorkers;
+
+    private OrderEventSource orderEventSource;
+
+    private Closeable subscription;
+
+    /**
+     * Starts following an order.
+     *
+     * @param stopLoss true for a stop loss sell
+     * @param onFilled runs under the symbol lock on a fill worker once the order is completely filled
+     */
+    public void track(String symbol, long orderId, OrderSide side, boolean stopLoss, Runnable onFilled) {
+        ensureStarted();
+        trackedOrders.put(orderId, new TrackedOrder(symbol, orderId, side, stopLoss, System.currentTimeMillis(),
+                TimeUnit.HOURS.toMillis(timeoutHours), onFilled));
+        logger.info("Tracking " + side + " order " + orderId + " of " + symbol);
+    }
+
+    /**
+     * Follows an order again that was still pending when the bot stopped. It is checked once right
+     * away, as it may have been filled or canceled while the bot was down.
+     */
+    public void restore(String symbol, long orderId, OrderSide side, boolean stopLoss, long submittedAt,
+                        Runnable onFilled) {
+        ensureStarted();
+        trackedOrders.putIfAbsent(orderId, new TrackedOrder(symbol, orderId, side, stopLoss, submittedAt,
+                TimeUnit.HOURS.toMillis(timeoutHours), onFilled));
+        logger.info("Tracking " + side + " order " + orderId + " of " + symbol + " again after a restart");
+        executor.execute(() -> {
+            try {
+                Order order = botEngine.getClient().getOrderStatus(new OrderStatusRequest(symbol, orderId));
+                onOrderUpdate(orderId, order.getStatus());
+            } catch (Exception e) {
+                logger.error("Unable to check restored order " + orderId + " of " + symbol, e);
+            }
+        });
+    }
+
+    /**
+     * The orders still being followed, for the {@link WarmStartSnapshot}.
+     */
+    public Collection<TrackedOrder> getTrackedOrders() {
+        return Collections.unmodifiableCollection(trackedOrders.values());
+    }
+
+    /**
+     * Returns true if an order of the symbol and side is still being followed.
+     */
+    public boolean isTracking(String symbol, OrderSide side) {
+        return trackedOrders.values().stream().anyMatch(i -> i.getSymbol().equals(symbol) && i.getSide() == side);
+    }
+
+    /**
+     * The order event source in use; a {@link LocalOrderEventSource} when running offline.
+     */
+    public synchronized OrderEventSource getOrderEventSource() {
+        ensureStarted();
+        return orderEventSource;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        try {
+            if (subscription != null) {
+                subscription.close();
+            }
+        } catch (IOException e) {
+            logger.error("Unable to close the order event source", e);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            fillWorkers.shutdownNow();
+        }
+    }
+
+    private synchronized void ensureStarted() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger fillThreadCount = new AtomicInteger();
+        fillWorkers = Executors.newFixedThreadPool(Math.max(fillThreads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "order-fill-" + fillThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if ("local".equalsIgnoreCase(orderSource)) {
+            orderEventSource = new LocalOrderEventSource();
+        } else if ("stream".equalsIgnoreCase(orderSource)) {
+            orderEventSource = new BinanceUserDataOrderEventSource(botEngine.getClient());
+        }
+        if (orderEventSource != null) {
+            subscription = orderEventSource.subscribe(
+                    (symbol, orderId, status) -> executor.execute(() -> onOrderUpdate(orderId, status)));
+        }
+        executor.scheduleWithFixedDelay(this::checkOrders, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    private void onOrderUpdate(long orderId, OrderStatus status) {
+        TrackedOrder trackedOrder = trackedOrders.get(orderId);
+        if (trackedOrder == null || status == null || status == trackedOrder.getStatus()) {
+            return;
+        }
+        trackedOrder.setStatus(status);
+        logger.info(trackedOrder.getSide() + " order " + orderId + " of " + trackedOrder.getSymbol() + " is " + status);
+        if (status == OrderStatus.PARTIALLY_FILLED) {
+            accountSnapshotService.invalidate();
+        }
+        if (!trackedOrder.isDone()) {
+            return;
+        }
+        trackedOrders.remove(orderId);
+        accountSnapshotService.invalidate();
+        if (status == OrderStatus.FILLED && trackedOrder.getOnFilled() != null) {
+            fillWorkers.execute(() -> runOnFilled(trackedOrder));
+        }
+    }
+
+    /**
+     * Runs the fill callback if the symbol is free. Otherwise tries again a little later rather than
+     * waiting for the lock, e.g. while a scan of the symbol sleeps before a market buy back.
+     */
+    private void runOnFilled(TrackedOrder trackedOrder) {
+        ReentrantLock lock = symbolLocks.get(trackedOrder.getSymbol());
+        if (!lock.tryLock()) {
+            logger.debug("Symbol " + trackedOrder.getSymbol() + " is busy. Retrying the fill of order "
+                    + trackedOrder.getOrderId());
+            executor.schedule(() -> fillWorkers.execute(() -> runOnFilled(trackedOrder)), FILL_RETRY_MILLIS,
+                    TimeUnit.MILLISECONDS);
+            return;
+        }
+        try {
+            trackedOrder.getOnFilled().run();
+        } catch (Exception e) {
+            logger.error("Error while reacting to the fill of order " + trackedOrder.getOrderId(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops timed out orders and, while no event stream is connected, polls the tracked orders.
+     */
+    private void checkOrders() {
+        try {
+            long now = System.currentTimeMillis();
+            for (TrackedOrder trackedOrder : trackedOrders.values()) {
+                if (trackedOrder.isTimedOut(now)) {
+                    trackedOrders.remove(trackedOrder.getOrderId());
+                    String message = trackedOrder.getSide() + " order " + trackedOrder.getOrderId() + " not filled after "
+                            + timeoutHours + "h. No longer waiting for it";
+                    loggerUtil.info(message);
+                    loggerUtil.notify(trackedOrder.getSymbol(), message);
+                }
+            }
+            if (!trackedOrders.isEmpty() && (orderEventSource == null || !orderEventSource.isConnected())) {
+                pollOrders();
+            }
+        } catch (Exception e) {
+            logger.error("Error while checking tracked orders", e);
+        }
+    }
+
+    private void pollOrders() {
+        Set<String> symbols = trackedOrders.values().stream().map(TrackedOrder::getSymbol).collect(Collectors.toSet());
+        Set<Long> openOrderIds = new HashSet<>();
+        if (symbols.size() > ALL_SYMBOLS_POLL_THRESHOLD) {
+            addOrderIds(openOrderIds, botEngine.getClient().getOpenOrders(new OrderRequest(null)));
+        } else {
+            for (String symbol : symbols) {
+                addOrderIds(openOrderIds, botEngine.getClient().getOpenOrders(new OrderRequest(symbol)));
+            }
+        }
+        for (TrackedOrder trackedOrder : trackedOrders.values()) {
+            if (!openOrderIds.contains(trackedOrder.getOrderId())) {
+                // No longer open: ask once whether it was filled or canceled
+                Order order = botEngine.getClient().getOrderStatus(
+                        new OrderStatusRequest(trackedOrder.getSymbol(), trackedOrder.getOrderId()));
+                onOrderUpdate(trackedOrder.getOrderId(), order.getStatus());
+            }
+        }
+    }
+
+    private static void addOrderIds(Set<Long> orderIds, List<Order> orders) {
+        for (Order order : orders) {
+            orderIds.add(order.getOrderId());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.market.TickerPrice;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last prices of all symbols, loaded with a single bulk call and kept for a short TTL. Valuing an
+ * account therefore costs one price request no matter how many assets it holds. Assets without a
+ * direct USDT or BTC pair are converted through the USDT/BTC cross rate.
+ */
+@Service
+public class PriceSnapshotService {
+
+    private static final Logger logger = Logger.getLogger(PriceSnapshotService.class);
+
+    @Autowired
+    private BotEngine botEngine;
+
+    @Value("${trading.bot.prices.ttlMillis:10000}")
+    private long ttlMillis;
+
+    private volatile Map<String, Double> pricesBySymbol = Collections.emptyMap();
+
+    private volatile long loadedAt;
+
+    /**
+     * Returns the last price of a symbol, or null if the exchange does not list it.
+     */
+    public Double getPrice(String symbol) {
+        refreshIfExpired();
+        return pricesBySymbol.get(symbol);
+    }
+
+    /**
+     * Estimate the value of a given amount of an asset in USDT
+     *
+     * @param asset  The asset, e.g. ETH
+     * @param amount The amount of the asset
+     */
+    public double valueInUSDT(String asset, double amount) {
+        if (asset.equals("USDT")) {
+            return amount;
+        }
+        Double price = getPrice(asset + "USDT");
+        if (price != null) {
+            return amount * price;
+        }
+        Double btcPrice = getPrice(asset + "BTC");
+        Double btcUsdt = getPrice("BTCUSDT");
+        if (btcPrice != null && btcUsdt != null) {
+            return amount * btcPrice * btcUsdt;
+        }
+        Double inversePrice = getPrice("USDT" + asset);
+        if (inversePrice != null && inversePrice > 0) {
+            return amount / inversePrice;
+        }
+        logger.info("No USDT or BTC price for " + asset + ". Valuing it at 0");
+        return 0.0;
+    }
+
+    /**
+     * Estimate the value of a given amount of an asset in BTC
+     *
+     * @param asset  The asset, e.g. ETH
+     * @param amount The amount of the asset
+     */
+    public double valueInBTC(String asset, double amount) {
+        if (asset.equals("BTC")) {
+            return amount;
+        }
+        Double price = getPrice(asset + "BTC");
+        if (price != null) {
+            return amount * price;
+        }
+        Double inversePrice = getPrice("BTC" + asset);
+        if (inversePrice != null && inversePrice > 0) {
+            return amount / inversePrice;
+        }
+        Double btcUsdt = getPrice("BTCUSDT");
+        if (btcUsdt == null || btcUsdt == 0) {
+            return 0.0;
+        }
+        return valueInUSDT(asset, amount) / btcUsdt;
+    }
+
+    /**
+     * Drops the snapshot so the next lookup loads fresh prices.
+     */
+    public void invalidate() {
+        loadedAt = 0;
+    }
+
+    private void refreshIfExpired() {
+        if (System.currentTimeMillis() - loadedAt > ttlMillis) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - loadedAt > ttlMillis) {
+                    refresh();
+                }
+            }
+        }
+    }
+
+    private void refresh() {
+        List<TickerPrice> tickerPrices = botEngine.getClient().getAllPrices();
+        Map<String, Double> prices = new HashMap<>(tickerPrices.size() * 2);
+        for (TickerPrice tickerPrice : tickerPrices) {
+            prices.put(tickerPrice.getSymbol(), Double.valueOf(tickerPrice.getPrice()));
+        }
+        pricesBySymbol = prices;
+        loadedAt = System.currentTimeMillis();
+    }
+}
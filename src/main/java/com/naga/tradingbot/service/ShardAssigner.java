@@ -0,0 +1,231 @@
+package com.naga.tradingbot.service;
+
+import com.naga.tradingbot.metrics.MetricsRegistry;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the traded symbols between the bot nodes. Every symbol goes to the node with the highest
+ * rendezvous hash of (node, symbol), so adding or delisting a symbol moves nothing else and a node
+ * joining or leaving only moves the symbols it gains or loses.
+ * <p>
+ * Membership is either the static {@code trading.bot.shard.nodes} list or, with {@code file} or
+ * {@code local}, the nodes holding a live lease in a {@link LeaseStore}. A node that stops renewing
+ * its lease drops out after the lease duration and the others pick up its symbols on their next scan.
+ * The live nodes are read from the store once per renewal, not on every ownership check. A node that
+ * cannot renew its lease or read the others' trades nothing until it can, since the others take over
+ * its symbols once its lease expires.
+ */
+@Service
+public class ShardAssigner {
+
+    private static final Logger logger = Logger.getLogger(ShardAssigner.class);
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * static for the fixed node list, file for leases in {@code trading.bot.shard.dir}, local for an
+     * in-memory {@link LocalLeaseStore}.
+     */
+    @Value("${trading.bot.shard.membership:static}")
+    private String membership;
+
+    /**
+     * Nodes of the static membership. Empty runs every symbol on this node.
+     */
+    @Value("${trading.bot.shard.nodes:}")
+    private String staticNodes;
+
+    @Value("${trading.bot.shard.nodeId:${spring.profiles.active:default}}")
+    private String nodeId;
+
+    @Value("${trading.bot.shard.dir:shards}")
+    private String leaseDir;
+
+    @Value("${trading.bot.shard.leaseMillis:90000}")
+    private long leaseMillis;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    private volatile LeaseStore leaseStore;
+
+    private ScheduledExecutorService heartbeat;
+
+    private volatile Set<String> staticView;
+
+    /**
+     * Live nodes as of the last lease renewal.
+     */
+    private volatile Set<String> leaseView = Collections.emptySet();
+
+    private volatile Set<String> lastNodes = new TreeSet<>();
+
+    private volatile int lastOwned;
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Symbols of the list that this node trades, in the list's order.
+     */
+    public List<String> filterOwned(Collection<String> tickers) {
+        Set<String> nodes = getLiveNodes();
+        List<String> owned = new ArrayList<>();
+        for (String ticker : tickers) {
+            if (nodeId.equals(ownerOf(ticker, nodes))) {
+                owned.add(ticker);
+            }
+        }
+        if (!nodes.equals(lastNodes)) {
+            logger.info("Shard membership " + nodes + ": node " + nodeId + " trades " + owned.size() + " of "
+                    + tickers.size() + " symbols");
+            lastNodes = nodes;
+        }
+        lastOwned = owned.size();
+        return owned;
+    }
+
+    /**
+     * True if this node currently trades the symbol.
+     */
+    public boolean owns(String ticker) {
+        return nodeId.equals(ownerOf(ticker, getLiveNodes()));
+    }
+
+    /**
+     * Nodes sharing the symbols, as of the last lease renewal. Empty while this node cannot renew its
+     * lease; otherwise contains this node unless it is missing from a static node list.
+     */
+    public Set<String> getLiveNodes() {
+        if (isStatic()) {
+            if (staticView == null) {
+                Set<String> nodes = new TreeSet<>(Arrays.asList(StringUtils.commaDelimitedListToStringArray(
+                        staticNodes.replace(" ", ""))));
+                if (nodes.isEmpty()) {
+                    nodes.add(nodeId);
+                } else if (!nodes.contains(nodeId)) {
+                    logger.error("Node " + nodeId + " is not in trading.bot.shard.nodes " + nodes + ", trading nothing");
+                }
+                staticView = Collections.unmodifiableSet(nodes);
+            }
+            return staticView;
+        }
+        if (leaseStore == null) {
+            join();
+        }
+        return leaseView;
+    }
+
+    /**
+     * Node with the highest score for the symbol; ties go to the smaller node id.
+     */
+    static String ownerOf(String ticker, Collection<String> nodes) {
+        String owner = null;
+        long best = 0;
+        for (String node : nodes) {
+            long score = score(node, ticker);
+            if (owner == null || Long.compareUnsigned(score, best) > 0
+                    || (score == best && node.compareTo(owner) < 0)) {
+                owner = node;
+                best = score;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * 64-bit FNV-1a of node and symbol with the MurmurHash3 finalizer. Unlike String.hashCode it
+     * spreads similar names evenly, and it is the same on every JVM.
+     */
+    static long score(String node, String ticker) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < node.length(); i++) {
+            hash = (hash ^ node.charAt(i)) * FNV_PRIME;
+        }
+        hash = (hash ^ 0xff) * FNV_PRIME;
+        for (int i = 0; i < ticker.length(); i++) {
+            hash = (hash ^ ticker.charAt(i)) * FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private boolean isStatic() {
+        return !"file".equalsIgnoreCase(membership) && !"local".equalsIgnoreCase(membership);
+    }
+
+    /**
+     * Takes the first lease and starts renewing it at a third of the lease duration. Only done once a
+     * mode actually asks for its symbols, so offline runs leave no lease behind.
+     */
+    private synchronized void join() {
+        if (leaseStore == null) {
+            leaseStore = "local".equalsIgnoreCase(membership) ? new LocalLeaseStore()
+                    : new FileLeaseStore(Paths.get(leaseDir));
+            renewLease();
+            heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "shard-lease");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(leaseMillis / 3, 1);
+            heartbeat.scheduleAtFixedRate(this::renewLease, period, period, TimeUnit.MILLISECONDS);
+            metricsRegistry.gauge("shard.liveNodes", () -> lastNodes.size());
+            metricsRegistry.gauge("shard.ownedTickers", () -> lastOwned);
+            logger.info("Node " + nodeId + " joined shard membership (" + membership + ", lease " + leaseMillis + "ms)");
+        }
+    }
+
+    /**
+     * Renews this node's lease and refreshes the view of the live nodes.
+     */
+    private void renewLease() {
+        long now = System.currentTimeMillis();
+        try {
+            leaseStore.renew(nodeId, now + leaseMillis);
+            Set<String> nodes = leaseStore.getLiveNodes(now);
+            nodes.add(nodeId);
+            leaseView = Collections.unmodifiableSet(nodes);
+        } catch (IOException e) {
+            // The others take over this node's symbols once its lease expires, so trade nothing
+            logger.error("Unable to renew the shard lease of " + nodeId + ", trading nothing", e);
+            leaseView = Collections.emptySet();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+            try {
+                leaseStore.release(nodeId);
+            } catch (IOException e) {
+                logger.error("Unable to release the shard lease of " + nodeId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.naga.tradingbot.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One lock per symbol so that two workers can never gather, decide or trade the same symbol at the
+ * same time.
+ */
+@Service
+public class SymbolLocks {
+
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    public ReentrantLock get(String ticker) {
+        return locks.computeIfAbsent(ticker, key -> new ReentrantLock());
+    }
+}
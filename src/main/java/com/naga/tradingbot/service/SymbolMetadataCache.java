@@ -0,0 +1,140 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.general.ExchangeInfo;
+import com.binance.api.client.domain.general.FilterType;
+import com.binance.api.client.domain.general.SymbolFilter;
+import com.binance.api.client.domain.general.SymbolInfo;
+import com.naga.tradingbot.model.data.SymbolMetadata;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Symbol metadata from exchangeInfo, one of the heaviest Binance endpoints. It is loaded once and
+ * refreshed on a long TTL; the trading path only reads the pre-parsed {@link SymbolMetadata}.
+ */
+@Service
+public class SymbolMetadataCache {
+
+    private static final Logger logger = Logger.getLogger(SymbolMetadataCache.class);
+
+    @Autowired
+    private BotEngine botEngine;
+
+    @Value("${trading.bot.exchangeInfo.ttlMinutes:360}")
+    private long ttlMinutes;
+
+    private volatile Map<String, SymbolMetadata> metadataBySymbol = Collections.emptyMap();
+
+    private volatile List<String> symbols = Collections.emptyList();
+
+    private volatile long loadedAt;
+
+    /**
+     * Returns the metadata of a symbol, or null if the exchange does not list it.
+     */
+    public SymbolMetadata get(String symbol) {
+        refreshIfExpired();
+        return metadataBySymbol.get(symbol);
+    }
+
+    /**
+     * Returns all symbols listed by the exchange.
+     */
+    public List<String> getSymbols() {
+        refreshIfExpired();
+        return symbols;
+    }
+
+    /**
+     * Metadata of all listed symbols in exchangeInfo order, for the {@link WarmStartSnapshot}.
+     */
+    public List<SymbolMetadata> getAll() {
+        Map<String, SymbolMetadata> metadata = metadataBySymbol;
+        List<SymbolMetadata> all = new ArrayList<>(metadata.size());
+        for (String symbol : symbols) {
+            SymbolMetadata symbolMetadata = metadata.get(symbol);
+            if (symbolMetadata != null) {
+                all.add(symbolMetadata);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * When exchangeInfo was last loaded (epoch millis), 0 if never.
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Installs metadata saved by an earlier run. It expires with the TTL counted from loadedAt.
+     */
+    public synchronized void restore(List<SymbolMetadata> all, long loadedAt) {
+        Map<String, SymbolMetadata> metadata = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (SymbolMetadata symbolMetadata : all) {
+            metadata.put(symbolMetadata.getSymbol(), symbolMetadata);
+            names.add(symbolMetadata.getSymbol());
+        }
+        metadataBySymbol = metadata;
+        symbols = Collections.unmodifiableList(names);
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * Reloads exchangeInfo regardless of the TTL.
+     */
+    public synchronized void refresh() {
+        ExchangeInfo exchangeInfo = botEngine.getClient().getExchangeInfo();
+        Map<String, SymbolMetadata> metadata = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (SymbolInfo symbolInfo : exchangeInfo.getSymbols()) {
+            metadata.put(symbolInfo.getSymbol(), toMetadata(symbolInfo));
+            names.add(symbolInfo.getSymbol());
+        }
+        metadataBySymbol = metadata;
+        symbols = Collections.unmodifiableList(names);
+        loadedAt = System.currentTimeMillis();
+        logger.info("Loaded metadata of " + names.size() + " symbols from exchangeInfo");
+    }
+
+    private void refreshIfExpired() {
+        if (System.currentTimeMillis() - loadedAt > ttlMinutes * 60 * 1000) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - loadedAt > ttlMinutes * 60 * 1000) {
+                    refresh();
+                }
+            }
+        }
+    }
+
+    private static SymbolMetadata toMetadata(SymbolInfo symbolInfo) {
+        String minPrice = null;
+        String tickSize = null;
+        String minQty = null;
+        String stepSize = null;
+        String minNotional = null;
+        for (SymbolFilter filter : symbolInfo.getFilters()) {
+            if (filter.getFilterType() == FilterType.PRICE_FILTER) {
+                minPrice = filter.getMinPrice();
+                tickSize = filter.getTickSize();
+            } else if (filter.getFilterType() == FilterType.LOT_SIZE) {
+                minQty = filter.getMinQty();
+                stepSize = filter.getStepSize();
+            } else if (filter.getFilterType() == FilterType.MIN_NOTIONAL) {
+                minNotional = filter.getMinNotional();
+            }
+        }
+        return new SymbolMetadata(symbolInfo.getSymbol(), symbolInfo.getBaseAsset(), symbolInfo.getQuoteAsset(),
+                minPrice, tickSize, minQty, stepSize, minNotional);
+    }
+}
@@ -0,0 +1,417 @@
+package com.naga.tradingbot.service;
+
+import com.binance.api.client.domain.OrderSide;
+import com.binance.api.client.domain.market.CandlestickInterval;
+import com.naga.tradingbot.model.data.CandleView;
+import com.naga.tradingbot.model.data.IndicatorState;
+import com.naga.tradingbot.model.data.SmaWindow;
+import com.naga.tradingbot.model.data.SymbolMetadata;
+import com.naga.tradingbot.model.data.TrackedOrder;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Snapshot of the in-memory signal state, saved at the end of every scan (every
+ * {@code trading.bot.snapshot.saveMinutes} in stream mode) and on shutdown and loaded on startup, so
+ * a restart neither reloads exchangeInfo nor re-evaluates tickers whose latest closed candle was
+ * already evaluated. Tickers with newer candles only fetch the delta, as the candle store already
+ * holds everything up to its last close time.
+ * <p>
+ * Per symbol it holds the close time, counts and sums of the SMA windows, the last live price and the
+ * last evaluated close time, plus the exchangeInfo metadata and the orders the
+ * {@link OrderTracker} was still following. The closes in the windows are not duplicated: they are
+ * refilled from the {@link CandleStore} and checked against the saved sums, and a symbol whose stored
+ * candles no longer match starts cold.
+ */
+@Service
+public class WarmStartSnapshot {
+
+    private static final Logger logger = Logger.getLogger(WarmStartSnapshot.class);
+
+    /**
+     * "SNAP" as a big-endian int.
+     */
+    private static final int MAGIC = 0x534E4150;
+
+    private static final int VERSION = 3;
+
+    /**
+     * Relative difference tolerated between a saved and a refilled window sum.
+     */
+    private static final double SUM_TOLERANCE = 1e-9;
+
+    @Autowired
+    private MovingAverageEngine movingAverageEngine;
+
+    @Autowired
+    private SymbolMetadataCache symbolMetadataCache;
+
+    @Autowired
+    private BotExecuteJob botExecuteJob;
+
+    @Autowired
+    private CandleStore candleStore;
+
+    @Autowired
+    private SymbolLocks symbolLocks;
+
+    @Autowired
+    private OrderTracker orderTracker;
+
+    @Autowired
+    private BotEngine botEngine;
+
+    @Value("${trading.bot.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${trading.bot.snapshot.file:candles/warm-start.snapshot}")
+    private String file;
+
+    /**
+     * Indicator state and evaluations older than this are not restored; metadata follows its own TTL.
+     */
+    @Value("${trading.bot.snapshot.maxAgeHours:24}")
+    private long maxAgeHours;
+
+    /**
+     * How often stream mode saves; it has no scan to save after.
+     */
+    @Value("${trading.bot.snapshot.saveMinutes:15}")
+    private long saveMinutes;
+
+    private ScheduledExecutorService saver;
+
+    /**
+     * Set once the snapshot was loaded, so offline modes never overwrite it with their empty state.
+     */
+    private volatile boolean active;
+
+    /**
+     * Restores the state of the previous run and enables saving.
+     */
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        active = true;
+        Path path = Paths.get(file);
+        if (!Files.exists(path)) {
+            logger.info("No warm start snapshot at " + path + ". Starting cold");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Snapshot snapshot;
+        try {
+            snapshot = read(Files.readAllBytes(path));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to read warm start snapshot " + path + ". Starting cold", e);
+            return;
+        }
+        symbolMetadataCache.restore(snapshot.metadata, snapshot.metadataLoadedAt);
+        // Pending orders follow their own timeout, however old the snapshot is
+        for (TrackedOrder order : snapshot.orders) {
+            orderTracker.restore(order.getSymbol(), order.getOrderId(), order.getSide(), order.isStopLoss(),
+                    order.getSubmittedAt(), order.getSide() == OrderSide.SELL
+                            ? botEngine.getSellFilledCallback(order.getSymbol(), order.isStopLoss()) : null);
+        }
+        long age = start - snapshot.savedAt;
+        if (age > TimeUnit.HOURS.toMillis(maxAgeHours)) {
+            logger.info("Warm start snapshot is " + age / 60000 + " minutes old. Restored metadata only");
+            return;
+        }
+        int restored = 0;
+        if (snapshot.shortTermPeriod == movingAverageEngine.getShortTermPeriod()
+                && snapshot.longTermPeriod == movingAverageEngine.getLongTermPeriod()) {
+            for (SavedState saved : snapshot.states) {
+                IndicatorState state = refill(saved);
+                if (state != null) {
+                    movingAverageEngine.restore(saved.ticker, state);
+                    restored++;
+                }
+            }
+        } else {
+            logger.info("SMA periods changed since the warm start snapshot. Indicator state starts cold");
+        }
+        snapshot.evaluations.forEach(botExecuteJob::restoreEvaluation);
+        logger.info("Warm start from a " + age / 1000 + "s old snapshot in " + (System.currentTimeMillis() - start)
+                + "ms: " + snapshot.metadata.size() + " symbols' metadata, " + restored + "/" + snapshot.states.size()
+                + " indicator states, " + snapshot.evaluations.size() + " evaluations, " + snapshot.orders.size()
+                + " pending orders");
+    }
+
+    /**
+     * Writes the current state, replacing the previous snapshot atomically. Does nothing before
+     * {@link #load()}.
+     */
+    public synchronized void save() {
+        if (!active) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Path path = Paths.get(file);
+        try {
+            byte[] bytes = write();
+            Path dir = path.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(path.getFileName() + ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Saved warm start snapshot of " + bytes.length + " bytes in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (IOException e) {
+            logger.error("Unable to save warm start snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Saves every {@code saveMinutes} from now on, for stream mode.
+     */
+    public synchronized void startPeriodicSave() {
+        if (!active || saver != null) {
+            return;
+        }
+        saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "warm-start-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        saver.scheduleWithFixedDelay(this::save, saveMinutes, saveMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            if (saver != null) {
+                saver.shutdownNow();
+            }
+        }
+        save();
+    }
+
+    private byte[] write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(movingAverageEngine.getShortTermPeriod());
+        out.writeInt(movingAverageEngine.getLongTermPeriod());
+
+        out.writeLong(symbolMetadataCache.getLoadedAt());
+        List<SymbolMetadata> metadata = symbolMetadataCache.getAll();
+        out.writeInt(metadata.size());
+        for (SymbolMetadata symbolMetadata : metadata) {
+            out.writeUTF(symbolMetadata.getSymbol());
+            out.writeUTF(symbolMetadata.getBaseAsset());
+            out.writeUTF(symbolMetadata.getQuoteAsset());
+            out.writeUTF(toPlainString(symbolMetadata.getMinPrice()));
+            out.writeUTF(toPlainString(symbolMetadata.getTickSize()));
+            out.writeUTF(toPlainString(symbolMetadata.getMinQty()));
+            out.writeUTF(toPlainString(symbolMetadata.getStepSize()));
+            out.writeUTF(toPlainString(symbolMetadata.getMinNotional()));
+        }
+
+        List<SavedState> states = new ArrayList<>();
+        for (Map.Entry<String, IndicatorState> entry : movingAverageEngine.getStates().entrySet()) {
+            SavedState saved = copy(entry.getKey(), entry.getValue());
+            if (saved != null) {
+                states.add(saved);
+            }
+        }
+        out.writeInt(states.size());
+        for (SavedState saved : states) {
+            out.writeUTF(saved.ticker);
+            out.writeLong(saved.lastCloseTime);
+            out.writeInt(saved.shortTermCount);
+            out.writeDouble(saved.shortTermSum);
+            out.writeInt(saved.longTermCount);
+            out.writeDouble(saved.longTermSum);
+            out.writeDouble(saved.currentPrice);
+        }
+
+        Map<String, Long> evaluations = new TreeMap<>(botExecuteJob.getEvaluatedCloseTimes());
+        out.writeInt(evaluations.size());
+        for (Map.Entry<String, Long> entry : evaluations.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+
+        List<TrackedOrder> orders = new ArrayList<>(orderTracker.getTrackedOrders());
+        out.writeInt(orders.size());
+        for (TrackedOrder order : orders) {
+            out.writeUTF(order.getSymbol());
+            out.writeLong(order.getOrderId());
+            out.writeUTF(order.getSide().name());
+            out.writeBoolean(order.isStopLoss());
+            out.writeLong(order.getSubmittedAt());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The state of a symbol, read under its lock so a scan cannot change it halfway. Null if the symbol
+     * stays busy.
+     */
+    private SavedState copy(String ticker, IndicatorState state) {
+        ReentrantLock lock = symbolLocks.get(ticker);
+        try {
+            if (!lock.tryLock(1, TimeUnit.SECONDS)) {
+                logger.info("Ticker : " + ticker + " is busy. Leaving it out of the warm start snapshot");
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            if (state.getLastCloseTime() == Long.MIN_VALUE) {
+                return null;
+            }
+            SavedState saved = new SavedState(ticker);
+            saved.lastCloseTime = state.getLastCloseTime();
+            saved.shortTermCount = state.getShortTermWindow().getCount();
+            saved.shortTermSum = state.getShortTermWindow().getSum();
+            saved.longTermCount = state.getLongTermWindow().getCount();
+            saved.longTermSum = state.getLongTermWindow().getSum();
+            saved.currentPrice = state.getCurrentPrice();
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Snapshot read(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a version " + VERSION + " warm start snapshot");
+        }
+        Snapshot snapshot = new Snapshot();
+        snapshot.savedAt = in.readLong();
+        snapshot.shortTermPeriod = in.readInt();
+        snapshot.longTermPeriod = in.readInt();
+
+        snapshot.metadataLoadedAt = in.readLong();
+        int metadataCount = in.readInt();
+        for (int i = 0; i < metadataCount; i++) {
+            snapshot.metadata.add(new SymbolMetadata(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                    in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF()));
+        }
+
+        int stateCount = in.readInt();
+        for (int i = 0; i < stateCount; i++) {
+            SavedState saved = new SavedState(in.readUTF());
+            saved.lastCloseTime = in.readLong();
+            saved.shortTermCount = in.readInt();
+            saved.shortTermSum = in.readDouble();
+            saved.longTermCount = in.readInt();
+            saved.longTermSum = in.readDouble();
+            saved.currentPrice = in.readDouble();
+            snapshot.states.add(saved);
+        }
+
+        int evaluationCount = in.readInt();
+        for (int i = 0; i < evaluationCount; i++) {
+            snapshot.evaluations.put(in.readUTF(), in.readLong());
+        }
+
+        int orderCount = in.readInt();
+        for (int i = 0; i < orderCount; i++) {
+            snapshot.orders.add(new TrackedOrder(in.readUTF(), in.readLong(), OrderSide.valueOf(in.readUTF()),
+                    in.readBoolean(), in.readLong(), 0, null));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Refills the windows of a saved state with the stored closes up to its last close time, or null if
+     * they do not add up to the saved sums.
+     */
+    private IndicatorState refill(SavedState saved) {
+        // The whole history: a CSV store drops the rows before the window start of a read
+        CandleView candles;
+        try {
+            candles = candleStore.view(saved.ticker, CandlestickInterval.HOURLY, Long.MIN_VALUE);
+        } catch (UncheckedIOException e) {
+            logger.info("Stored candles of " + saved.ticker + " are unreadable. Starting it cold");
+            return null;
+        }
+        int end = candles.indexOf(saved.lastCloseTime + 1);
+        if (end == 0 || candles.getCloseTime(end - 1) != saved.lastCloseTime) {
+            logger.info("Stored candles of " + saved.ticker + " end before the warm start snapshot. Starting it cold");
+            return null;
+        }
+        IndicatorState state = movingAverageEngine.newState();
+        int window = Math.max(movingAverageEngine.getShortTermPeriod(), movingAverageEngine.getLongTermPeriod());
+        for (int i = Math.max(0, end - window); i < end; i++) {
+            state.addClosed(candles.getCloseTime(i), candles.getClose(i));
+        }
+        if (!matches(state.getShortTermWindow(), saved.shortTermCount, saved.shortTermSum)
+                || !matches(state.getLongTermWindow(), saved.longTermCount, saved.longTermSum)) {
+            logger.info("Stored candles of " + saved.ticker + " changed since the warm start snapshot. Starting it cold");
+            return null;
+        }
+        state.evaluate(saved.currentPrice);
+        return state;
+    }
+
+    private static boolean matches(SmaWindow window, int count, double sum) {
+        return window.getCount() == count
+                && Math.abs(window.getSum() - sum) <= SUM_TOLERANCE * Math.max(1.0, Math.abs(sum));
+    }
+
+    /**
+     * Shortest decimal of a filter value; parses back to the same value and precision.
+     */
+    private static String toPlainString(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static class Snapshot {
+        private long savedAt;
+        private int shortTermPeriod;
+        private int longTermPeriod;
+        private long metadataLoadedAt;
+        private final List<SymbolMetadata> metadata = new ArrayList<>();
+        private final List<SavedState> states = new ArrayList<>();
+        private final Map<String, Long> evaluations = new TreeMap<>();
+        private final List<TrackedOrder> orders = new ArrayList<>();
+    }
+
+    private static class SavedState {
+        private final String ticker;
+        private long lastCloseTime;
+        private int shortTermCount;
+        private double shortTermSum;
+        private int longTermCount;
+        private double longTermSum;
+        private double currentPrice;
+
+        private SavedState(String ticker) {
+            this.ticker = ticker;
+        }
+    }
+}
@@ -7,12 +7,28 @@ import java.lang.management.RuntimeMXBean;
 import java.util.List;
 
 public class CalcUtils {
+  private static final double[] POWERS_OF_TEN = new double[19];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
   public static double roundTo(double num, int places) {
-    return Math.round(num * Math.pow(10, places)) / Math.pow(10, places);
+    double scale = powerOfTen(places);
+    return Math.round(num * scale) / scale;
   }
 
   public static double floorTo(double num, int places) {
-    return Math.floor(num * Math.pow(10, places)) / Math.pow(10, places);
+    double scale = powerOfTen(places);
+    return Math.floor(num * scale) / scale;
+  }
+
+  /** 10^places, from a table for the usual 0-18 decimals. */
+  public static double powerOfTen(int places) {
+    return places >= 0 && places < POWERS_OF_TEN.length ? POWERS_OF_TEN[places] : Math.pow(10, places);
   }
 
   public static String getUpTimeString() {
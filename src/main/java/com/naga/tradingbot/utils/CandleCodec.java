@@ -0,0 +1,267 @@
+package com.naga.tradingbot.utils;
+
+import com.naga.tradingbot.model.data.CandleView;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compresses blocks of candles the way Gorilla compresses time series: open and close times as
+ * delta-of-deltas, which cost a single bit per regular hourly candle, and every price and volume
+ * column as the XOR with its previous value, storing only the bits that changed. Each block starts
+ * with its candle count and carries its first values in full, so it decodes on its own.
+ * <p>
+ * The columns are written one after the other, so the XORs compare a price with the previous price
+ * of the same kind.
+ */
+public final class CandleCodec {
+
+  private static final int OPEN_TIME = 0;
+  private static final int CLOSE_TIME = 8;
+  private static final int FIRST_DOUBLE = 16;
+  private static final int DOUBLE_COLUMNS = 5;
+
+  private CandleCodec() {
+  }
+
+  /** Encodes the candles from index {@code from} (inclusive) to {@code to} (exclusive) of the view. */
+  public static byte[] encode(CandleView candles, int from, int to) {
+    int count = to - from;
+    BitWriter writer = new BitWriter(16 + count * 32);
+    writer.write(count, 32);
+    if (count > 0) {
+      writeTimes(writer, candles, from, to, true);
+      writeTimes(writer, candles, from, to, false);
+      for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+        writeDoubles(writer, candles, from, to, column);
+      }
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodes a block into {@link CandleView} records at the position of {@code records}, which must be
+   * little-endian and have room for them, and advances the position past them.
+   *
+   * @return number of candles decoded
+   */
+  public static int decode(byte[] data, int offset, ByteBuffer records) {
+    BitReader reader = new BitReader(data, offset);
+    int count = (int) reader.read(32);
+    int base = records.position();
+    if (count > 0) {
+      readTimes(reader, records, base, count, OPEN_TIME);
+      readTimes(reader, records, base, count, CLOSE_TIME);
+      for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+        readDoubles(reader, records, base, count, FIRST_DOUBLE + column * 8);
+      }
+    }
+    records.position(base + count * CandleView.RECORD_SIZE);
+    return count;
+  }
+
+  private static void writeTimes(BitWriter writer, CandleView candles, int from, int to, boolean open) {
+    long previous = open ? candles.getOpenTime(from) : candles.getCloseTime(from);
+    writer.write(previous, 64);
+    long previousDelta = 0;
+    for (int i = from + 1; i < to; i++) {
+      long time = open ? candles.getOpenTime(i) : candles.getCloseTime(i);
+      long delta = time - previous;
+      long deltaOfDelta = delta - previousDelta;
+      if (deltaOfDelta == 0) {
+        writer.write(0, 1);
+      } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+        writer.write(0b10, 2);
+        writer.write(deltaOfDelta, 7);
+      } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+        writer.write(0b110, 3);
+        writer.write(deltaOfDelta, 9);
+      } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+        writer.write(0b1110, 4);
+        writer.write(deltaOfDelta, 12);
+      } else {
+        writer.write(0b1111, 4);
+        writer.write(deltaOfDelta, 64);
+      }
+      previous = time;
+      previousDelta = delta;
+    }
+  }
+
+  private static void readTimes(BitReader reader, ByteBuffer records, int base, int count, int field) {
+    long previous = reader.read(64);
+    records.putLong(base + field, previous);
+    long previousDelta = 0;
+    for (int i = 1; i < count; i++) {
+      long deltaOfDelta;
+      if (reader.read(1) == 0) {
+        deltaOfDelta = 0;
+      } else if (reader.read(1) == 0) {
+        deltaOfDelta = signed(reader.read(7), 7);
+      } else if (reader.read(1) == 0) {
+        deltaOfDelta = signed(reader.read(9), 9);
+      } else if (reader.read(1) == 0) {
+        deltaOfDelta = signed(reader.read(12), 12);
+      } else {
+        deltaOfDelta = reader.read(64);
+      }
+      previousDelta += deltaOfDelta;
+      previous += previousDelta;
+      records.putLong(base + i * CandleView.RECORD_SIZE + field, previous);
+    }
+  }
+
+  private static void writeDoubles(BitWriter writer, CandleView candles, int from, int to, int column) {
+    long previous = Double.doubleToRawLongBits(getDouble(candles, from, column));
+    writer.write(previous, 64);
+    int previousLeading = -1;
+    int previousTrailing = 0;
+    for (int i = from + 1; i < to; i++) {
+      long bits = Double.doubleToRawLongBits(getDouble(candles, i, column));
+      long xor = bits ^ previous;
+      if (xor == 0) {
+        writer.write(0, 1);
+      } else {
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+          // The changed bits fit in the window of the previous value
+          writer.write(0b10, 2);
+          writer.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+        } else {
+          int significant = 64 - leading - trailing;
+          writer.write(0b11, 2);
+          writer.write(leading, 5);
+          writer.write(significant - 1, 6);
+          writer.write(xor >>> trailing, significant);
+          previousLeading = leading;
+          previousTrailing = trailing;
+        }
+      }
+      previous = bits;
+    }
+  }
+
+  private static void readDoubles(BitReader reader, ByteBuffer records, int base, int count, int field) {
+    long previous = reader.read(64);
+    records.putLong(base + field, previous);
+    int previousLeading = 0;
+    int previousTrailing = 0;
+    for (int i = 1; i < count; i++) {
+      if (reader.read(1) == 1) {
+        if (reader.read(1) == 0) {
+          int significant = 64 - previousLeading - previousTrailing;
+          previous ^= reader.read(significant) << previousTrailing;
+        } else {
+          previousLeading = (int) reader.read(5);
+          int significant = (int) reader.read(6) + 1;
+          previousTrailing = 64 - previousLeading - significant;
+          previous ^= reader.read(significant) << previousTrailing;
+        }
+      }
+      records.putLong(base + i * CandleView.RECORD_SIZE + field, previous);
+    }
+  }
+
+  private static double getDouble(CandleView candles, int i, int column) {
+    switch (column) {
+      case 0:
+        return candles.getOpen(i);
+      case 1:
+        return candles.getHigh(i);
+      case 2:
+        return candles.getLow(i);
+      case 3:
+        return candles.getClose(i);
+      default:
+        return candles.getVolume(i);
+    }
+  }
+
+  /** Sign-extends the low {@code bits} bits. */
+  private static long signed(long value, int bits) {
+    return (value << (64 - bits)) >> (64 - bits);
+  }
+
+  /** Appends bits most significant first, through a 64-bit accumulator. */
+  private static final class BitWriter {
+    private byte[] bytes;
+    private int size;
+    private long word;
+    private int used;
+
+    private BitWriter(int capacity) {
+      bytes = new byte[capacity];
+    }
+
+    /** Writes the low {@code bits} bits of the value, 1 to 64. */
+    private void write(long value, int bits) {
+      if (bits < 64) {
+        value &= (1L << bits) - 1;
+      }
+      int free = 64 - used;
+      if (bits < free) {
+        word |= value << (free - bits);
+        used += bits;
+      } else {
+        word |= value >>> (bits - free);
+        flush(word, 8);
+        used = bits - free;
+        word = used == 0 ? 0 : value << (64 - used);
+      }
+    }
+
+    private void flush(long value, int count) {
+      if (size + count > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + count));
+      }
+      for (int i = 0; i < count; i++) {
+        bytes[size++] = (byte) (value >>> (56 - i * 8));
+      }
+    }
+
+    private byte[] toByteArray() {
+      flush(word, (used + 7) >>> 3);
+      used = 0;
+      word = 0;
+      return Arrays.copyOf(bytes, size);
+    }
+  }
+
+  /** Reads bits most significant first, a 64-bit word at a time. */
+  private static final class BitReader {
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private long position;
+
+    private BitReader(byte[] bytes, int offset) {
+      this.bytes = bytes;
+      this.buffer = ByteBuffer.wrap(bytes);
+      this.position = (long) offset << 3;
+    }
+
+    /** Reads {@code bits} bits, 1 to 64, as the low bits of the result. */
+    private long read(int bits) {
+      int index = (int) (position >>> 3);
+      int shift = (int) (position & 7);
+      long value = getLong(index) << shift;
+      if (shift + bits > 64) {
+        value |= (bytes[index + 8] & 0xff) >>> (8 - shift);
+      }
+      position += bits;
+      return value >>> (64 - bits);
+    }
+
+    /** The 8 bytes from index as a big-endian long, zero-padded past the end. */
+    private long getLong(int index) {
+      if (index + 8 <= bytes.length) {
+        return buffer.getLong(index);
+      }
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (index + i < bytes.length ? bytes[index + i] & 0xff : 0);
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.naga.tradingbot.utils;
+
+/**
+ * Parses the plain decimal strings Binance sends ("31801.23000000") without the generality of
+ * Double.parseDouble. When the digits fit in 2^53 and there are at most 22 decimals, the value is the
+ * exact digits divided by an exact power of ten, which IEEE division rounds correctly, so the result
+ * is identical to Double.parseDouble. Anything else falls back to it.
+ */
+public final class DecimalParser {
+
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private static final double[] POWERS_OF_TEN = new double[23];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private DecimalParser() {
+  }
+
+  public static double parseDouble(CharSequence text) {
+    return parseDouble(text, 0, text.length());
+  }
+
+  /**
+   * Parses the characters from {@code from} (inclusive) to {@code to} (exclusive).
+   *
+   * @throws NumberFormatException if they are not a number
+   */
+  public static double parseDouble(CharSequence text, int from, int to) {
+    int i = from;
+    boolean negative = false;
+    if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+      negative = text.charAt(i) == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int decimals = 0;
+    int pendingZeros = 0;
+    boolean dot = false;
+    boolean digits = false;
+    for (; i < to; i++) {
+      char c = text.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits = true;
+        if (dot) {
+          // Trailing zeros of the fraction do not change the value; only take them before a digit
+          if (c == '0') {
+            pendingZeros++;
+            continue;
+          }
+          for (; pendingZeros > 0; pendingZeros--) {
+            mantissa *= 10;
+            decimals++;
+            if (mantissa >= MAX_EXACT_MANTISSA) {
+              return fallback(text, from, to);
+            }
+          }
+          decimals++;
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        if (mantissa >= MAX_EXACT_MANTISSA) {
+          return fallback(text, from, to);
+        }
+      } else if (c == '.' && !dot) {
+        dot = true;
+      } else {
+        return fallback(text, from, to);
+      }
+    }
+    if (!digits || decimals >= POWERS_OF_TEN.length) {
+      return fallback(text, from, to);
+    }
+    double value = mantissa / POWERS_OF_TEN[decimals];
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses a decimal integer from {@code from} (inclusive) to {@code to} (exclusive).
+   *
+   * @throws NumberFormatException if they are not an integer
+   */
+  public static long parseLong(CharSequence text, int from, int to) {
+    int i = from;
+    boolean negative = i < to && text.charAt(i) == '-';
+    if (negative || (i < to && text.charAt(i) == '+')) {
+      i++;
+    }
+    if (i == to) {
+      throw new NumberFormatException("Not an integer: " + text.subSequence(from, to));
+    }
+    long value = 0;
+    for (; i < to; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new NumberFormatException("Not an integer: " + text.subSequence(from, to));
+      }
+      value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+    }
+    return negative ? -value : value;
+  }
+
+  private static double fallback(CharSequence text, int from, int to) {
+    return Double.parseDouble(text.subSequence(from, to).toString());
+  }
+}
@@ -0,0 +1,65 @@
+package com.naga.tradingbot.utils;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling. Keeps the first and last point and from every bucket
+ * in between the point forming the largest triangle with the previously kept point and the average
+ * of the next bucket, which preserves the visual shape of a line chart.
+ */
+public final class Downsampler {
+
+  private Downsampler() {
+  }
+
+  /**
+   * Picks at most {@code threshold} points of the series.
+   *
+   * @param x ascending x values
+   * @param y y values, same length as {@code x}
+   * @return indices of the kept points in ascending order
+   */
+  public static int[] largestTriangleThreeBuckets(double[] x, double[] y, int threshold) {
+    int length = x.length;
+    if (threshold >= length || threshold < 3) {
+      int[] all = new int[length];
+      for (int i = 0; i < length; i++) {
+        all[i] = i;
+      }
+      return all;
+    }
+    int[] kept = new int[threshold];
+    double bucketSize = (double) (length - 2) / (threshold - 2);
+    int previous = 0;
+    kept[0] = 0;
+    for (int bucket = 0; bucket < threshold - 2; bucket++) {
+      int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+      int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, length);
+      double avgX = 0;
+      double avgY = 0;
+      for (int i = nextStart; i < nextEnd; i++) {
+        avgX += x[i];
+        avgY += y[i];
+      }
+      int nextCount = nextEnd - nextStart;
+      avgX /= nextCount;
+      avgY /= nextCount;
+
+      int start = (int) Math.floor(bucket * bucketSize) + 1;
+      int end = nextStart;
+      double maxArea = -1;
+      int chosen = start;
+      for (int i = start; i < end; i++) {
+        // Twice the triangle area; the factor does not change which point wins
+        double area = Math.abs((x[previous] - avgX) * (y[i] - y[previous])
+            - (x[previous] - x[i]) * (avgY - y[previous]));
+        if (area > maxArea) {
+          maxArea = area;
+          chosen = i;
+        }
+      }
+      kept[bucket + 1] = chosen;
+      previous = chosen;
+    }
+    kept[threshold - 1] = length - 1;
+    return kept;
+  }
+}
@@ -0,0 +1,111 @@
+package com.naga.tradingbot.utils;
+
+/**
+ * Prices and quantities as primitive longs counting units of 10^-8, the finest precision Binance
+ * uses. Rounding to a tickSize or stepSize is then exact integer arithmetic, and values are parsed
+ * from and formatted to plain decimal strings without BigDecimal or DecimalFormat.
+ */
+public final class FixedDecimal {
+
+  public static final int DECIMALS = 8;
+
+  /** Number of units in 1.0. */
+  public static final long SCALE = 100_000_000L;
+
+  private static final long[] POWERS_OF_TEN = {
+      1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+  };
+
+  private FixedDecimal() {
+  }
+
+  /** Nearest fixed-point value of a double. */
+  public static long fromDouble(double value) {
+    return Math.round(value * SCALE);
+  }
+
+  public static double toDouble(long value) {
+    return (double) value / SCALE;
+  }
+
+  /**
+   * Parses a plain decimal string such as {@code "0.00100000"} exactly. Digits beyond the eighth
+   * decimal are truncated.
+   *
+   * @throws NumberFormatException if the text is not a plain decimal number
+   */
+  public static long parse(CharSequence text) {
+    int length = text.length();
+    int i = 0;
+    boolean negative = false;
+    if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+      negative = text.charAt(0) == '-';
+      i++;
+    }
+    long units = 0;
+    int decimals = -1;
+    boolean digits = false;
+    for (; i < length; i++) {
+      char c = text.charAt(i);
+      if (c == '.' && decimals < 0) {
+        decimals = 0;
+      } else if (c >= '0' && c <= '9') {
+        digits = true;
+        if (decimals < DECIMALS) {
+          units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+          if (decimals >= 0) {
+            decimals++;
+          }
+        }
+      } else {
+        throw new NumberFormatException("Not a plain decimal: " + text);
+      }
+    }
+    if (!digits) {
+      throw new NumberFormatException("Not a plain decimal: " + text);
+    }
+    units = Math.multiplyExact(units, POWERS_OF_TEN[DECIMALS - Math.max(decimals, 0)]);
+    return negative ? -units : units;
+  }
+
+  /** Largest multiple of {@code step} not above the value. A step of 0 or less leaves it unchanged. */
+  public static long floorToStep(long value, long step) {
+    return step <= 0 ? value : value - Math.floorMod(value, step);
+  }
+
+  /** Nearest multiple of {@code step}, halves rounded up. A step of 0 or less leaves it unchanged. */
+  public static long roundToStep(long value, long step) {
+    if (step <= 0) {
+      return value;
+    }
+    return floorToStep(value + step / 2, step);
+  }
+
+  /**
+   * Plain decimal text with exactly {@code decimals} decimal places, e.g. for order parameters.
+   * Digits below that precision are cut off, so round to the step first.
+   */
+  public static String toString(long value, int decimals) {
+    decimals = Math.max(0, Math.min(decimals, DECIMALS));
+    char[] buffer = new char[21 + DECIMALS];
+    int position = buffer.length;
+    // Long.MIN_VALUE is not a price; negate in the negative range to stay clear of overflow
+    long remaining = value < 0 ? value : -value;
+    remaining /= POWERS_OF_TEN[DECIMALS - decimals];
+    for (int i = 0; i < decimals; i++) {
+      buffer[--position] = (char) ('0' - remaining % 10);
+      remaining /= 10;
+    }
+    if (decimals > 0) {
+      buffer[--position] = '.';
+    }
+    do {
+      buffer[--position] = (char) ('0' - remaining % 10);
+      remaining /= 10;
+    } while (remaining != 0);
+    if (value < 0) {
+      buffer[--position] = '-';
+    }
+    return new String(buffer, position, buffer.length - position);
+  }
+}
@@ -0,0 +1,92 @@
+package com.naga.tradingbot.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Minimal stand-in for the Telegram Bot API on localhost. Accepts sendMessage calls, logs and keeps
+ * the received texts, and can be told to fail the next requests to exercise retries.
+ */
+public class LocalTelegramServer {
+
+  private static final Logger logger = Logger.getLogger(LocalTelegramServer.class);
+
+  private final HttpServer server;
+  private final List<String> messages = new CopyOnWriteArrayList<>();
+  private volatile int failuresLeft;
+
+  /**
+   * Starts the server, on a free port if {@code port} is 0.
+   */
+  public LocalTelegramServer(int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  public String getUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /** Texts received so far. */
+  public List<String> getMessages() {
+    return messages;
+  }
+
+  /** Answers the next {@code count} requests with 503. */
+  public void failNext(int count) {
+    failuresLeft = count;
+  }
+
+  public void stop() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    String body;
+    try (InputStream in = exchange.getRequestBody()) {
+      body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    int status = 200;
+    String response = "{\"ok\":true}";
+    if (failuresLeft > 0) {
+      failuresLeft--;
+      status = 503;
+      response = "{\"ok\":false}";
+    } else if (!exchange.getRequestURI().getPath().endsWith("/sendMessage")) {
+      status = 404;
+      response = "{\"ok\":false}";
+    } else {
+      String text = param(body, "text");
+      messages.add(text);
+      logger.info("Telegram stand-in received for chat " + param(body, "chat_id") + ": " + text);
+    }
+    byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static String param(String form, String name) {
+    for (String pair : form.split("&")) {
+      int eq = pair.indexOf('=');
+      if (eq > 0 && pair.substring(0, eq).equals(name)) {
+        return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+      }
+    }
+    return null;
+  }
+}
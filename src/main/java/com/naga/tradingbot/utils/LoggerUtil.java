@@ -1,7 +1,7 @@
 package com.naga.tradingbot.utils;
 
+import com.naga.tradingbot.metrics.MetricsRegistry;
 import com.pengrad.telegrambot.TelegramBot;
-import com.pengrad.telegrambot.UpdatesListener;
 import com.pengrad.telegrambot.request.SendPhoto;
 import com.pengrad.telegrambot.response.SendResponse;
 import org.apache.log4j.Logger;
@@ -9,12 +9,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.net.URLConnection;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class LoggerUtil {
@@ -24,24 +21,26 @@ public class LoggerUtil {
     @Autowired
     private Environment env;
 
-    public void notify(String ticker, String text) {
+    @Autowired
+    private TelegramNotifier telegramNotifier;
 
-        String apiToken = getApiToken(ticker);
-        String chatId = getChatId(ticker);
+    @Autowired
+    private MetricsRegistry metricsRegistry;
 
-        String urlString = "https://api.telegram.org/bot%s/sendMessage?chat_id=%s&text=%s";
-        //Add Telegram token (given Token is fake)
-        //Add chatId (given chatId is fake)
+    private final Map<String, TelegramBot> telegramBots = new ConcurrentHashMap<>();
 
-        urlString = String.format(urlString, apiToken, chatId, text);
+    /**
+     * Queue a Telegram message for the ticker's chat. Sending happens on the notifier thread.
+     */
+    public void notify(String ticker, String text) {
+        notify(ticker, text, TelegramNotifier.Priority.NORMAL);
+    }
 
-        try {
-            URL url = new URL(urlString);
-            URLConnection conn = url.openConnection();
-            InputStream is = new BufferedInputStream(conn.getInputStream());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Queue a Telegram message with a priority. Under overload lower priorities are dropped first.
+     */
+    public void notify(String ticker, String text, TelegramNotifier.Priority priority) {
+        telegramNotifier.enqueue(getApiToken(ticker), getChatId(ticker), text, priority);
     }
 
     private String getApiToken(String ticker) {
@@ -60,21 +59,39 @@ public class LoggerUtil {
         }
     }
 
-    public boolean sendPhoto(String ticker, File file) {
+    /**
+     * Send an encoded image to the ticker's chat. Blocks until Telegram answers, so call it off the
+     * trading path.
+     */
+    public boolean sendPhoto(String ticker, byte[] photo) {
 
         String apiToken = getApiToken(ticker);
         String chatId = getChatId(ticker);
+        if (apiToken == null || chatId == null) {
+            return false;
+        }
+        // One long-lived bot per token; it only sends, so no updates listener is registered
+        TelegramBot bot = telegramBots.computeIfAbsent(apiToken, TelegramBot::new);
+        long start = System.nanoTime();
+        SendResponse response;
+        try {
+            response = bot.execute(new SendPhoto(chatId, photo));
+        } catch (RuntimeException e) {
+            metricsRegistry.increment("telegram.sendPhoto.errors");
+            throw e;
+        } finally {
+            metricsRegistry.timer("telegram.sendPhoto").record(System.nanoTime() - start);
+        }
+        if (response == null || !response.isOk()) {
+            metricsRegistry.increment("telegram.sendPhoto.errors");
+            return false;
+        }
+        return true;
+    }
 
-        // Create your bot passing the token received from @BotFather
-        TelegramBot bot = new TelegramBot(apiToken);
-        // Register for updates
-        bot.setUpdatesListener(updates -> {
-            // ... process updates
-            // return id of last processed update or confirm them all
-            return UpdatesListener.CONFIRMED_UPDATES_ALL;
-        });
-        SendResponse response = bot.execute(new SendPhoto(chatId, file));
-        return response.isOk();
+    @PreDestroy
+    public void shutdown() {
+        telegramBots.values().forEach(TelegramBot::shutdown);
     }
 
     public void debug(String message) {
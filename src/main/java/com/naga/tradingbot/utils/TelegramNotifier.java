@@ -0,0 +1,315 @@
+package com.naga.tradingbot.utils;
+
+import com.naga.tradingbot.metrics.MetricsRegistry;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends Telegram messages from a background thread so callers only pay for an enqueue. Messages
+ * wait in a bounded queue; when it is full the oldest message of the lowest priority is dropped.
+ * Everything queued for the same chat within the batch window goes out as one digest over a shared
+ * HTTP client, and failed sends are retried with exponential backoff.
+ */
+@Service
+public class TelegramNotifier {
+
+    private static final Logger logger = Logger.getLogger(TelegramNotifier.class);
+
+    /**
+     * Telegram rejects messages longer than this.
+     */
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+
+    public enum Priority {
+        LOW, NORMAL, HIGH
+    }
+
+    /**
+     * Base URL of the Bot API. {@code local} starts a {@link LocalTelegramServer} and sends there.
+     */
+    @Value("${telegram.api.url:https://api.telegram.org}")
+    private String apiUrl;
+
+    @Value("${telegram.queue.capacity:500}")
+    private int capacity;
+
+    @Value("${telegram.batch.windowMillis:2000}")
+    private long batchWindowMillis;
+
+    @Value("${telegram.retry.maxAttempts:5}")
+    private int maxAttempts;
+
+    @Value("${telegram.retry.backOffMillis:1000}")
+    private long backOffMillis;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    private final Deque<Notification>[] queues = newQueues();
+
+    private int size;
+
+    private int dropped;
+
+    private long sequence;
+
+    private HttpClient httpClient;
+
+    private LocalTelegramServer localServer;
+
+    private Thread sender;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if ("local".equalsIgnoreCase(apiUrl)) {
+            localServer = new LocalTelegramServer(0);
+            apiUrl = localServer.getUrl();
+            logger.info("Telegram messages go to the local stand-in at " + apiUrl);
+        }
+        metricsRegistry.gauge("telegram.queue.size", this::getQueueSize);
+        httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        running = true;
+        sender = new Thread(this::sendLoop, "telegram-notifier");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Queues a message. Never blocks.
+     */
+    public void enqueue(String apiToken, String chatId, String text, Priority priority) {
+        if (apiToken == null || chatId == null) {
+            logger.debug("No Telegram chat configured, not sending: " + text);
+            return;
+        }
+        synchronized (queues) {
+            if (size >= capacity && !evictBelow(priority)) {
+                dropped++;
+                metricsRegistry.increment("telegram.dropped");
+                return;
+            }
+            queues[priority.ordinal()].addLast(new Notification(sequence++, apiToken, chatId, text));
+            size++;
+            queues.notifyAll();
+        }
+    }
+
+    /**
+     * Number of messages waiting to be sent.
+     */
+    public int getQueueSize() {
+        synchronized (queues) {
+            return size;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        synchronized (queues) {
+            queues.notifyAll();
+        }
+        try {
+            sender.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (localServer != null) {
+            localServer.stop();
+        }
+    }
+
+    /**
+     * Drops the oldest message with a lower priority than the given one to make room.
+     */
+    private boolean evictBelow(Priority priority) {
+        for (int i = 0; i < priority.ordinal(); i++) {
+            if (!queues[i].isEmpty()) {
+                queues[i].removeFirst();
+                size--;
+                dropped++;
+                metricsRegistry.increment("telegram.dropped");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendLoop() {
+        while (running || getQueueSize() > 0) {
+            try {
+                List<Notification> batch = takeBatch();
+                for (Map.Entry<String, List<String>> chat : groupByChat(batch).entrySet()) {
+                    Notification first = findFirst(batch, chat.getKey());
+                    for (String digest : toDigests(chat.getValue())) {
+                        send(first.apiToken, first.chatId, digest);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Error in the Telegram notifier", e);
+            }
+        }
+    }
+
+    /**
+     * Waits for a message, then gives the batch window for more to arrive and takes them all in
+     * the order they were queued.
+     */
+    private List<Notification> takeBatch() throws InterruptedException {
+        synchronized (queues) {
+            while (size == 0 && running) {
+                queues.wait();
+            }
+        }
+        if (running) {
+            Thread.sleep(batchWindowMillis);
+        }
+        List<Notification> batch = new ArrayList<>();
+        synchronized (queues) {
+            for (Deque<Notification> queue : queues) {
+                batch.addAll(queue);
+                queue.clear();
+            }
+            size = 0;
+            if (dropped > 0) {
+                logger.info("Telegram queue full, dropped " + dropped + " low priority message(s)");
+                dropped = 0;
+            }
+        }
+        batch.sort(Comparator.comparingLong(i -> i.sequence));
+        return batch;
+    }
+
+    private static Map<String, List<String>> groupByChat(List<Notification> batch) {
+        Map<String, List<String>> textsByChat = new LinkedHashMap<>();
+        for (Notification notification : batch) {
+            textsByChat.computeIfAbsent(notification.key(), i -> new ArrayList<>()).add(notification.text);
+        }
+        return textsByChat;
+    }
+
+    private static Notification findFirst(List<Notification> batch, String key) {
+        for (Notification notification : batch) {
+            if (notification.key().equals(key)) {
+                return notification;
+            }
+        }
+        throw new IllegalStateException("No notification for " + key);
+    }
+
+    /**
+     * Joins the texts of one chat into as few messages as the Telegram length limit allows.
+     */
+    private static List<String> toDigests(List<String> texts) {
+        List<String> digests = new ArrayList<>();
+        StringBuilder digest = new StringBuilder();
+        for (String text : texts) {
+            if (text.length() > MAX_MESSAGE_LENGTH) {
+                text = text.substring(0, MAX_MESSAGE_LENGTH);
+            }
+            if (digest.length() > 0 && digest.length() + 1 + text.length() > MAX_MESSAGE_LENGTH) {
+                digests.add(digest.toString());
+                digest.setLength(0);
+            }
+            if (digest.length() > 0) {
+                digest.append('\n');
+            }
+            digest.append(text);
+        }
+        if (digest.length() > 0) {
+            digests.add(digest.toString());
+        }
+        return digests;
+    }
+
+    private void send(String apiToken, String chatId, String text) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(apiUrl + "/bot" + apiToken + "/sendMessage"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("chat_id=" + encode(chatId) + "&text=" + encode(text)))
+                .build();
+        long delay = backOffMillis;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                int status = response.statusCode();
+                if (status == 200) {
+                    return;
+                }
+                metricsRegistry.increment("telegram.sendMessage.errors");
+                if (status != 429 && status < 500) {
+                    logger.error("Telegram rejected message with status " + status + ": " + response.body());
+                    return;
+                }
+                logger.info("Telegram returned " + status + " on attempt " + attempt);
+            } catch (IOException e) {
+                metricsRegistry.increment("telegram.sendMessage.errors");
+                logger.info("Telegram send failed on attempt " + attempt + ": " + e.getMessage());
+            } finally {
+                metricsRegistry.timer("telegram.sendMessage").record(System.nanoTime() - start);
+            }
+            if (attempt < maxAttempts) {
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, 60000);
+            }
+        }
+        logger.error("Giving up on Telegram message after " + maxAttempts + " attempts");
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Deque<Notification>[] newQueues() {
+        Deque<Notification>[] queues = new Deque[Priority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+        return queues;
+    }
+
+    private static class Notification {
+        private final long sequence;
+        private final String apiToken;
+        private final String chatId;
+        private final String text;
+
+        private Notification(long sequence, String apiToken, String chatId, String text) {
+            this.sequence = sequence;
+            this.apiToken = apiToken;
+            this.chatId = chatId;
+            this.text = text;
+        }
+
+        private String key() {
+            return apiToken + ":" + chatId;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.naga.tradingbot.utils;
+
+/**
+ * Thread-safe token bucket. Holds up to {@code capacity} tokens which refill continuously so the
+ * whole capacity is restored every {@code refillPeriodMillis}. Callers block only as long as needed
+ * for enough tokens to become available.
+ */
+public class TokenBucket {
+  private final double capacity;
+  private final double refillPerMilli;
+  private double tokens;
+  private long lastRefill;
+
+  public TokenBucket(double capacity, long refillPeriodMillis) {
+    this.capacity = capacity;
+    this.refillPerMilli = capacity / refillPeriodMillis;
+    this.tokens = capacity;
+    this.lastRefill = System.currentTimeMillis();
+  }
+
+  public double getCapacity() {
+    return capacity;
+  }
+
+  /** Tokens currently available. */
+  public synchronized double available() {
+    refill();
+    return tokens;
+  }
+
+  /**
+   * Takes the given number of tokens, waiting until they are available.
+   *
+   * @return milliseconds spent waiting
+   */
+  public long acquire(double permits) throws InterruptedException {
+    double needed = Math.min(permits, capacity);
+    long waited = 0;
+    for (; ; ) {
+      long wait;
+      synchronized (this) {
+        refill();
+        if (tokens >= needed) {
+          tokens -= needed;
+          return waited;
+        }
+        wait = (long) Math.ceil((needed - tokens) / refillPerMilli);
+      }
+      Thread.sleep(wait);
+      waited += wait;
+    }
+  }
+
+  /** Empties the bucket, e.g. when the exchange reports that the limit was hit anyway. */
+  public synchronized void drain() {
+    refill();
+    tokens = 0;
+  }
+
+  private void refill() {
+    long now = System.currentTimeMillis();
+    tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerMilli);
+    lastRefill = now;
+  }
+}